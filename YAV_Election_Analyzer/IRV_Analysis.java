@@ -1,9 +1,15 @@
 package YAV_Election_Analyzer;
 
-import java.math.RoundingMode;
-import java.text.DecimalFormat;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Takes a YAV_Ballot_Box and analyzes all the votes according to Instant Runoff Voting rules
@@ -14,142 +20,306 @@ import java.util.HashMap;
  * @author Grant Barker, for use with Louisiana Youth & Government conference elections
  */
 
-public class IRV_Analysis {
-	//        Election #, PositionRank #, Pass #, Map from Candidate to Vote Count
-	protected ArrayList<ArrayList<ArrayList<HashMap<String, Integer>>>> voteTally;
+public class IRV_Analysis implements YAV_Analyzer {
 	//        Election #, PositionRank # (0 being highest), Candidate
 	protected ArrayList<ArrayList<String>> winnerOrder;
-	private final String indent = "    ";
-	private DecimalFormat df;
+	//        Election #, PositionRank #, the position's rounds and how it was won
+	private ArrayList<ArrayList<IRV_Result.Position>> positions;
+	private IRV_Result result;
+	private YAV_Progress progress;
+	private boolean batchElimination;
 
 	/**
-	 * Iterates over each election and finds the winning candidates for each available position
-	 * Fills the voteTally with each candidate's # of votes in each IRV round for each position in each election
+	 * Analyzes the elections in parallel on the common ForkJoinPool
 	 * @param ybb Filled ballot box
 	 */
 	public IRV_Analysis(YAV_Ballot_Box ybb) {
-		voteTally = new ArrayList<ArrayList<ArrayList<HashMap<String, Integer>>>>();
+		this(ybb, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Iterates over each election and finds the winning candidates for each available position
+	 * Records each candidate's # of votes in each IRV round for each position in each election in an IRV_Result
+	 *  (nothing is printed; see IRV_Report for that)
+	 * Elections don't share any state, so each one runs as its own task on the executor
+	 * @param ybb Filled ballot box
+	 * @param executor Runs the elections (eg. a ForkJoinPool, or a single thread to run them one after another)
+	 */
+	public IRV_Analysis(YAV_Ballot_Box ybb, ExecutorService executor) {
+		this(ybb, executor, null);
+	}
+
+	/**
+	 * Same as above, but hands each round and position to progress as soon as it's counted, and each election once
+	 *  it (and every election before it) is counted, and stops early if the analysis is canceled
+	 * @param progress Receives each counted round, position, and election, and is checked for cancellation between
+	 *  passes (or null)
+	 */
+	public IRV_Analysis(YAV_Ballot_Box ybb, ExecutorService executor, YAV_Progress progress) {
+		this(ybb, executor, progress, false);
+	}
+
+	/**
+	 * Same as above, optionally eliminating several candidates in one pass when none of them could survive
+	 * @param batchElimination If true, eliminates the bottom candidates together whenever their combined votes are
+	 *  fewer than the next candidate's (the winners are the same either way, there are just fewer passes)
+	 */
+	public IRV_Analysis(final YAV_Ballot_Box ybb, ExecutorService executor, YAV_Progress progress,
+						boolean batchElimination) {
+		this.progress = progress;
+		this.batchElimination = batchElimination;
 		winnerOrder = new ArrayList<ArrayList<String>>();
-		df = new DecimalFormat("##.##");
-		df.setRoundingMode(RoundingMode.DOWN);
+		positions = new ArrayList<ArrayList<IRV_Result.Position>>();
+		ArrayList<Future<?>> elections = new ArrayList<Future<?>>();
 		for (int i = 0; i < ybb.numElections ; i++) {
-			ArrayList<ArrayList<HashMap<String, Integer>>> ithElection = new ArrayList<ArrayList<HashMap<String, Integer>>>();
-			ArrayList<String> alreadyWon = new ArrayList<String>();
-			winnerOrder.add(alreadyWon);
-			for (int j = 0; j < ybb.numPositions[i]; j++) {
-				if (j < ybb.numCandidates[i]) {
-					ithElection.add(findSingleWinner(ybb, i, alreadyWon));
+			winnerOrder.add(new ArrayList<String>());
+			positions.add(new ArrayList<IRV_Result.Position>());
+		}
+		for (int i = 0; i < ybb.numElections ; i++) {
+			final int electionNum = i;
+			elections.add(executor.submit(new Runnable() {
+				public void run() {
+					analyzeElection(ybb, electionNum);
 				}
+			}));
+		}
+		try {
+			for (int i = 0; i < ybb.numElections ; i++) {
+				elections.get(i).get();
+				if (isCanceled()) return;
+				if (progress != null) progress.electionCounted(i, positions.get(i));
 			}
-			voteTally.add(ithElection);
 		}
-		System.out.println();
-		System.out.println("============ ELECTION WINNER ORDER ============");
-		for (int i = 0; i < ybb.numElections ; i++) {
-			System.out.println(ybb.electionOrder[i] + ":");
-			for (int j = 0; j < winnerOrder.get(i).size(); j++) {
-				System.out.println(indent + "#" + Integer.toString(j + 1) + ": " + winnerOrder.get(i).get(j));
+		catch (InterruptedException e) {
+			for (Future<?> election : elections) election.cancel(true);
+			Thread.currentThread().interrupt();
+			return;
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+		ArrayList<List<IRV_Result.Position>> electionPositions = new ArrayList<List<IRV_Result.Position>>();
+		for (ArrayList<IRV_Result.Position> p : positions) electionPositions.add(p);
+		result = new IRV_Result(Kind.IRV, Arrays.asList(ybb.electionOrder), electionPositions);
+	}
+
+	/**
+	 * @return Every election's rounds, tie breaks, and winners (null if the analysis was interrupted or canceled)
+	 */
+	public IRV_Result getResult() {
+		return result;
+	}
+
+	public Kind getKind() {
+		return Kind.IRV;
+	}
+
+	public boolean isBatchElimination() {
+		return batchElimination;
+	}
+
+	/**
+	 * Finds the winning candidates for each available position in one election
+	 * Only touches this election's entries in winnerOrder and positions, so elections can be analyzed
+	 *  concurrently
+	 * @param ybb Filled ballot box
+	 * @param electionNum Which election
+	 */
+	private void analyzeElection(YAV_Ballot_Box ybb, int electionNum) {
+		long start = System.nanoTime();
+		ArrayList<String> alreadyWon = winnerOrder.get(electionNum);
+		ArrayList<IRV_Result.Position> ithPositions = positions.get(electionNum);
+		// First pass of the next position, carried over from one position to the next (the ballot box keeps the
+		//  first position's up to date as ballots are added, so a recount starts from a copy of it)
+		IRV_Tally firstPass = new IRV_Tally(ybb.getFirstPass(electionNum));
+		// Ballots moved to count the first pass (for YAV_Metrics)
+		long scanned = ybb.size();
+		for (int j = 0; j < ybb.numPositions[electionNum]; j++) {
+			if (isCanceled()) return;
+			if (j < ybb.numCandidates[electionNum]) {
+				int numWon = alreadyWon.size();
+				findSingleWinner(ybb, electionNum, alreadyWon, firstPass, scanned, ithPositions);
+				if (alreadyWon.size() > numWon) { // Withdraw the winner, only reassigning their ballots
+					int winner = ybb.getCandidateID(electionNum, alreadyWon.get(alreadyWon.size() - 1));
+					scanned = firstPass.getTally(winner);
+					firstPass.eliminate(winner);
+				}
 			}
 		}
-		System.out.println("============ IRV ANALYSIS COMPLETE ============");
-		System.out.println();
+		YAV_Metrics.electionAnalyzed(System.nanoTime() - start);
 	}
 
 	/**
-	 * Iterates over ballots for a given election (ignoring blank entries) and tallies 1st-choice votes by IRV rules
+	 * Iterates over ballot groups for a given election (ignoring blank entries, weighted by each group's count)
+	 *  and tallies 1st-choice votes by IRV rules
 	 *  If someone's 1st (or 2nd, and so on) -choice vote is in the alreadyWon list, it checks their next vote
 	 *  If someone hasn't fully filled out the ballot and the checker finds a blank entry down-ballot, vote is scrapped
 	 *  With IRV rules, lowest scoring candidates are eliminated if no one receives >50% and voting tally is re-run
+	 *  Each re-run only moves the eliminated candidates' ballots along to their next choice (see IRV_Tally)
+	 *  With batchElimination, the lowest candidates may be eliminated together (see safeBatch())
 	 *  If the final two candidates are tied, calls the "ranked-delta" tie breaker function
 	 * @param ybb Filled ballot box
 	 * @param electionNum Which election
 	 * @param alreadyWon Candidates who have already won and will be ignored in this pass
-	 * @return HashMap of each candidate to how many votes they received, in a list representing each round of IRV
+	 * @param firstPass Tally of the first pass with alreadyWon withdrawn (copied, so it's left unchanged)
+	 * @param scanned How many ballots were moved to count the first pass (for YAV_Metrics)
+	 * @param ithPositions Where the position's rounds and outcome are recorded
 	 */
-	private ArrayList<HashMap<String, Integer>> findSingleWinner(YAV_Ballot_Box ybb, int electionNum,
-																 ArrayList<String> alreadyWon) {
-		ArrayList<HashMap<String, Integer>> returner = new ArrayList<HashMap<String, Integer>>();
-		ArrayList<String> eliminatedCandidates = new ArrayList<String>();
-		System.out.println(ybb.electionOrder[electionNum] + " Position #" + (alreadyWon.size() + 1) + ":");
+	private void findSingleWinner(YAV_Ballot_Box ybb, int electionNum, ArrayList<String> alreadyWon,
+								  IRV_Tally firstPass, long scanned, ArrayList<IRV_Result.Position> ithPositions) {
+		ArrayList<IRV_Result.Round> rounds = new ArrayList<IRV_Result.Round>();
+		List<String> eliminatedCandidates = new ArrayList<String>();
+		boolean eliminatedBatch = false;
+		final IRV_Tally tally = new IRV_Tally(firstPass);
+		int positionNum = alreadyWon.size() + 1;
+		String election = ybb.electionOrder[electionNum];
 		for (int i = 0; i < ybb.numCandidates[electionNum]; i++) {
-			HashMap<String, Integer> ithPass = new HashMap<String, Integer>();
-			int totalVotes = 0;
-			if (eliminatedCandidates.size() == 0) System.out.println(indent + "Pass #" + (i + 1) + ":");
-			else System.out.println(indent + "Pass #" + (i + 1) + " (eliminated " +
-									eliminatedCandidates.get(eliminatedCandidates.size()-1) + "):");
-			for (YAV_Ballot b : ybb.box) {
-				for (int j = 0; j < ybb.numCandidates[electionNum]; j++) {
-					if (!alreadyWon.contains(b.getNN(electionNum, j)) &&
-							!eliminatedCandidates.contains(b.getNN(electionNum, j)) &&
-							!b.getNN(electionNum, j).equals("")) {
-						Integer newTally = 1;
-						if (ithPass.containsKey(b.getNN(electionNum, j))) newTally += ithPass.get(b.getNN(electionNum, j));
-						ithPass.put(b.getNN(electionNum,  j), newTally);
-						totalVotes++;
-						break;
-					}
+			if (isCanceled()) return;
+			YAV_Events.Pass event = new YAV_Events.Pass();
+			event.begin();
+			int totalVotes = tally.getTotalVotes();
+			// Candidates go into ithPass in the order their earliest counted ballot was cast (as they did when every
+			//  ballot was recounted), then any with no votes in the first pass, since its order depends on it for
+			//  candidates whose names land in the same bucket
+			Integer[] order = new Integer[ybb.numCandidates[electionNum]];
+			int numCounted = 0;
+			for (int c = 0; c < order.length; c++) {
+				if (tally.getTally(c) > 0) order[numCounted++] = c;
+			}
+			Arrays.sort(order, 0, numCounted, new Comparator<Integer>() {
+				public int compare(Integer a, Integer b) {
+					return Integer.compare(tally.getFirstGroup(a), tally.getFirstGroup(b));
 				}
+			});
+			HashMap<String, Integer> ithPass = new HashMap<String, Integer>();
+			for (int k = 0; k < numCounted; k++) {
+				ithPass.put(ybb.candidateOrder[electionNum][order[k]], tally.getTally(order[k]));
 			}
-			if (i == 0) { // Check for candidates with 0 votes in the first round
-				for (String c : ybb.candidateOrder[electionNum]) {
-					if (!ithPass.containsKey(c) && !eliminatedCandidates.contains(c) && !alreadyWon.contains(c)) {
-						ithPass.put(c, 0);
-					}
+			for (int c = 0; c < order.length; c++) {
+				// Check for candidates with 0 votes in the first round
+				if (i == 0 && tally.getTally(c) == 0 && !tally.isExcluded(c)) {
+					ithPass.put(ybb.candidateOrder[electionNum][c], 0);
 				}
 			}
+			String[] candidates = new String[ithPass.size()];
+			int[] votes = new int[ithPass.size()];
+			int k = 0;
 			for (String c : ithPass.keySet()) {
-				System.out.print(indent + indent + c + ": " + ithPass.get(c) + " vote");
-				if (ithPass.get(c) != 1) System.out.print("s");
-				System.out.println(" (" + df.format(100 * ((float) ithPass.get(c) / totalVotes)) + "%)");
+				candidates[k] = c;
+				votes[k++] = ithPass.get(c);
 			}
-			for (String c : ithPass.keySet()) {
-				if ((double) ithPass.get(c) / totalVotes > 0.5) {
-					returner.add(ithPass);
+			IRV_Result.Round round = new IRV_Result.Round(i + 1, candidates, votes, totalVotes, eliminatedCandidates,
+														  eliminatedBatch);
+			rounds.add(round);
+			if (progress != null) progress.roundCounted(electionNum, positionNum, round);
+			YAV_Metrics.passCounted(scanned);
+			// The candidates are checked in ithPass's order (as they always have been), from the arrays built above
+			for (k = 0; k < candidates.length; k++) {
+				String c = candidates[k];
+				if ((double) votes[k] / totalVotes > 0.5) {
 					alreadyWon.add(c);
-					return returner;
+					addPosition(electionNum, ithPositions, new IRV_Result.Position(positionNum, rounds, null, c));
+					event.record("IRV", election, positionNum, i + 1, totalVotes, candidates.length, 0);
+					return;
 				}
-				else if ((double) ithPass.get(c) / totalVotes == 0.5 && ithPass.size() == 2) {
-					System.out.println("Tie between 2 candidates for this position, initiating ranked-delta tie breaker.");
+				else if ((double) votes[k] / totalVotes == 0.5 && candidates.length == 2) {
 					String d = "";
-					for (String e : ithPass.keySet()) {
-						if (e != c && (double) ithPass.get(e) / totalVotes == 0.5) {
-							d = e;
+					for (int e = 0; e < candidates.length; e++) {
+						if (e != k && (double) votes[e] / totalVotes == 0.5) {
+							d = candidates[e];
 							break;
 						}
 					}
+					IRV_Result.TieBreak tieBreak;
 					if (d.equals("")) {
-						System.out.println("Something went wrong, couldn't find " + c + "'s competetor.");
-						alreadyWon.add(c);
+						tieBreak = new IRV_Result.TieBreak(c, null, IRV_Result.TieBreak.Method.NO_COMPETITOR, 0, c);
 					}
 					else {
-						alreadyWon.add(rankedTieBreaker(ybb, electionNum, c, d));
+						tieBreak = breakTie(ybb, electionNum, c, d, positionNum, i + 1);
 					}
-					returner.add(ithPass);
-					return returner;
+					alreadyWon.add(tieBreak.getWinner());
+					addPosition(electionNum, ithPositions,
+								new IRV_Result.Position(positionNum, rounds, tieBreak, tieBreak.getWinner()));
+					event.record("IRV", election, positionNum, i + 1, totalVotes, candidates.length, 0);
+					return;
 				}
 			}
 			ArrayList<String> leastPopular = new ArrayList<String>();
 			int lowestTally = -1;
-			for (String c : ithPass.keySet()) {
-				if (leastPopular.isEmpty()) {
-					leastPopular.add(c);
-					lowestTally = ithPass.get(c);
+			for (k = 0; k < candidates.length; k++) {
+				if (leastPopular.isEmpty() || votes[k] < lowestTally) {
+					leastPopular.clear();
+					leastPopular.add(candidates[k]);
+					lowestTally = votes[k];
 				}
-				else {
-					if (ithPass.get(c) < lowestTally) {
-						leastPopular.clear();
-						leastPopular.add(c);
-						lowestTally = ithPass.get(c);
-					}
-					else if (ithPass.get(c) == lowestTally) {
-						leastPopular.add(c);
-					}
+				else if (votes[k] == lowestTally) {
+					leastPopular.add(candidates[k]);
+				}
+			}
+			eliminatedBatch = false;
+			if (batchElimination) {
+				ArrayList<String> batch = safeBatch(candidates, votes);
+				if (batch.size() > leastPopular.size()) {
+					leastPopular = batch;
+					eliminatedBatch = true;
 				}
 			}
-			eliminatedCandidates.addAll(leastPopular);
+			eliminatedCandidates = leastPopular;
+			int[] leastPopularIDs = new int[leastPopular.size()];
+			scanned = 0;
+			for (int c = 0; c < leastPopularIDs.length; c++) {
+				leastPopularIDs[c] = ybb.getCandidateID(electionNum, leastPopular.get(c));
+				scanned += tally.getTally(leastPopularIDs[c]);
+			}
+			tally.eliminate(leastPopularIDs);
+			event.record("IRV", election, positionNum, i + 1, totalVotes, candidates.length, leastPopularIDs.length);
 		}
-		System.out.println("Something broke, a winner was not found for some reason.");
-		return returner;
+		addPosition(electionNum, ithPositions, new IRV_Result.Position(positionNum, rounds, null, null));
+	}
+
+	/**
+	 * Records a counted position, and hands it to progress
+	 */
+	private void addPosition(int electionNum, ArrayList<IRV_Result.Position> ithPositions,
+							 IRV_Result.Position position) {
+		ithPositions.add(position);
+		YAV_Metrics.positionCounted();
+		if (progress != null) progress.positionCounted(electionNum, position);
+	}
+
+	/**
+	 * Finds the most candidates that can be eliminated together without changing who wins: the bottom k, as long as
+	 *  their combined votes are fewer than the next candidate's. Transfers between them can't lift any of them past
+	 *  the candidates above (who only gain votes), so one-at-a-time elimination would drop exactly these k first, and
+	 *  a majority it found along the way would still be a majority once all k are gone. At least two candidates are
+	 *  always left, so a final two-way tie is still reached and broken the same way.
+	 * @param candidates Candidates in this pass
+	 * @param votes Each of the candidates' votes
+	 * @return The bottom k candidates (lowest first), or an empty list if no batch is safe
+	 */
+	private ArrayList<String> safeBatch(String[] candidates, int[] votes) {
+		Integer[] order = new Integer[candidates.length];
+		for (int k = 0; k < order.length; k++) order[k] = k;
+		final int[] v = votes;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Integer.compare(v[a], v[b]);
+			}
+		});
+		int safe = 0;
+		long bottomVotes = 0;
+		for (int k = 1; k <= order.length - 2; k++) {
+			bottomVotes += votes[order[k - 1]];
+			if (bottomVotes < votes[order[k]]) safe = k;
+		}
+		ArrayList<String> batch = new ArrayList<String>();
+		for (int k = 0; k < safe; k++) batch.add(candidates[order[k]]);
+		return batch;
+	}
+
+	private boolean isCanceled() {
+		return progress != null && progress.isCanceled();
 	}
 
 	/**
@@ -167,37 +337,70 @@ public class IRV_Analysis {
 	 * @return Ranked-delta winner, or a random winner if the candidates' deltas are tied
 	 */
 	public String rankedTieBreaker(YAV_Ballot_Box ybb, int electionNum, String candidateA, String candidateB) {
-		String tieWinner = "";
+		return rankedTieBreaker(ybb, electionNum, candidateA, candidateB, System.out);
+	}
+
+	/**
+	 * Same as above, but prints how the tie was broken to the given stream
+	 * @param out Where the tie breaker's decision is printed
+	 */
+	public String rankedTieBreaker(YAV_Ballot_Box ybb, int electionNum, String candidateA, String candidateB,
+								   PrintStream out) {
+		IRV_Result.TieBreak tieBreak = breakTie(ybb, electionNum, candidateA, candidateB);
+		new IRV_Report(out).printTieBreakDecision(tieBreak);
+		return tieBreak.getWinner();
+	}
+
+	/**
+	 * Same as above, but only records how the tie was broken (without printing anything)
+	 * @return The tie breaker's decision, including the winner and the deciding delta
+	 */
+	public IRV_Result.TieBreak breakTie(YAV_Ballot_Box ybb, int electionNum, String candidateA, String candidateB) {
+		return breakTie(ybb, electionNum, candidateA, candidateB, 0, 0);
+	}
+
+	/**
+	 * Same as above, recording which position and pass the tie was in (see YAV_Events.TieBreak)
+	 * @param positionNum Position being filled
+	 * @param passNum Pass the tie was found in
+	 */
+	private IRV_Result.TieBreak breakTie(YAV_Ballot_Box ybb, int electionNum, String candidateA, String candidateB,
+										 int positionNum, int passNum) {
+		YAV_Events.TieBreak event = new YAV_Events.TieBreak();
+		event.begin();
+		IRV_Result.TieBreak tieBreak = rankedDelta(ybb, electionNum, candidateA, candidateB);
+		event.record(ybb.electionOrder[electionNum], positionNum, passNum, ybb.size(), ybb.numCandidates[electionNum],
+					 tieBreak);
+		return tieBreak;
+	}
+
+	private IRV_Result.TieBreak rankedDelta(YAV_Ballot_Box ybb, int electionNum, String candidateA, String candidateB) {
+		IRV_Result.TieBreak.Method method = IRV_Result.TieBreak.Method.RANKED_DELTA;
 		int totalDelta = 0;
-		for (YAV_Ballot b : ybb.box) {
-			int Arank = -1;
-			int Brank = -1;
-			for (int i = 0; i < ybb.numCandidates[electionNum]; i++) {
-				if (b.getNN(electionNum, i).equals(candidateA)) Arank = i;
-				if (b.getNN(electionNum, i).equals(candidateB)) Brank = i;
-			}
+		int idA = ybb.getCandidateID(electionNum, candidateA);
+		int idB = ybb.getCandidateID(electionNum, candidateB);
+		for (YAV_Ballot_Group g : ybb.groups.get(electionNum)) {
+			int Arank = g.getRank(idA);
+			int Brank = g.getRank(idB);
 			if (Arank != -1 && Brank != -1) {
-				totalDelta += Arank - Brank;
+				totalDelta += (Arank - Brank) * g.count;
 			}
 			else if (Arank != -1) {
 				Brank = ybb.numCandidates[electionNum] + 1;
-				totalDelta += Arank - Brank;
+				totalDelta += (Arank - Brank) * g.count;
 			}
 			else if (Brank != -1){
 				Arank = ybb.numCandidates[electionNum] + 1;
-				totalDelta += Arank - Brank;
+				totalDelta += (Arank - Brank) * g.count;
 			}
 		}
 		if (totalDelta == 0) {
-			for (YAV_Ballot b : ybb.box) {
-				int Arank = -1;
-				int Brank = -1;
-				for (int i = 0; i < ybb.numCandidates[electionNum]; i++) {
-					if (b.getNN(electionNum, i).equals(candidateA)) Arank = i;
-					if (b.getNN(electionNum, i).equals(candidateB)) Brank = i;
-				}
+			method = IRV_Result.TieBreak.Method.SHARED_DELTA;
+			for (YAV_Ballot_Group g : ybb.groups.get(electionNum)) {
+				int Arank = g.getRank(idA);
+				int Brank = g.getRank(idB);
 				if (Arank != -1 && Brank != -1) {
-					totalDelta += Arank - Brank;
+					totalDelta += (Arank - Brank) * g.count;
 				}
 				/*
 				Removed the two checks from the otherwise identical above loop which assigns a
@@ -208,24 +411,14 @@ public class IRV_Analysis {
 			}
 			// If rerunning the loop without those checks didn't work, assigns a random winner
 			if (totalDelta == 0) {
-				tieWinner = randomTieBreaker(candidateA, candidateB);
-				System.out.println("Uh oh, we've got a fully unbreakable tie here. Random winner: " + tieWinner);
-				return tieWinner;
+				YAV_Metrics.tieBroken(true);
+				return new IRV_Result.TieBreak(candidateA, candidateB, IRV_Result.TieBreak.Method.RANDOM, 0,
+											   randomTieBreaker(candidateA, candidateB));
 			}
 		}
-		if (totalDelta < 0) {
-			tieWinner = candidateA;
-			System.out.print("Total ranking difference favors " + tieWinner + " by a delta of ");
-			if (totalDelta == -1) System.out.println(-1 * totalDelta + " point.");
-			else System.out.println(-1 * totalDelta + " points.");
-		}
-		else {
-			tieWinner = candidateB;
-			System.out.println("Total ranking difference favors " + tieWinner + " by a delta of ");
-			if (totalDelta == 1) System.out.println(totalDelta + " point.");
-			else System.out.println(totalDelta + " points.");
-		}
-		return tieWinner;
+		YAV_Metrics.tieBroken(false);
+		return new IRV_Result.TieBreak(candidateA, candidateB, method, totalDelta,
+									   totalDelta < 0 ? candidateA : candidateB);
 	}
 
 	/**
@@ -0,0 +1,368 @@
+package YAV_Election_Analyzer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes an analysis' results to a .csv or .json file (picked by the file's extension) for spreadsheets and scripts
+ * Rounds are written one at a time, straight through a buffered writer, so an analysis can be exported while it runs
+ *  (see Streamer) and the export never holds more than one line of the file in memory.
+ * The .csv has one row per record, where the Record column says what the row is:
+ *    tally       - a candidate's Votes in a pass (Total Votes is every vote that counted in that pass)
+ *    eliminated  - a candidate eliminated at the end of the pass (Detail says "batch" if the bottom few candidates
+ *                  were eliminated together)
+ *    surplus     - an elected candidate whose surplus was transferred at the end of the pass (STV)
+ *    tie break   - the Candidate who won a tie (Detail says how, and Votes is the deciding ranked delta)
+ *    winner      - the Candidate who won the position
+ * Fractional (STV) votes are written with all their decimal places.
+ * The .json has an "elections" array, each with its "positions", each with its "rounds", "tieBreak", and "winner".
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class IRV_Export implements Closeable {
+	private static final String CSV_HEADER = "Record,Election,Position,Pass,Candidate,Votes,Total Votes,Detail";
+
+	private final Writer out;
+	private final boolean json;
+	private boolean firstElection;
+	private String election; // Election being written
+	private int openPosition; // Position whose rounds are being written (0 if none)
+	private int lastPass; // Latest pass written of the election
+	private int numPositions; // Positions written of the election
+
+	/**
+	 * Starts an export (writing the .csv's header row, or opening the .json's elections array)
+	 * @param file Where the results are written; a name ending in .json gets JSON, anything else gets CSV
+	 * @throws IOException If the file can't be written
+	 */
+	public IRV_Export(File file) throws IOException {
+		json = file.getName().toLowerCase().endsWith(".json");
+		out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+		firstElection = true;
+		if (json) out.write("{\"elections\": [");
+		else out.write(CSV_HEADER + "\r\n");
+	}
+
+	/**
+	 * Writes a whole result to a file
+	 * @param result Finished analysis
+	 * @param file Where the results are written (.csv or .json)
+	 * @return True if the results were written
+	 */
+	public static boolean export(IRV_Result result, File file) {
+		try (IRV_Export export = new IRV_Export(file)) {
+			for (int i = 0; i < result.getNumElections(); i++) {
+				export.writeElection(result.getElection(i), result.getPositions(i));
+			}
+		}
+		catch (IOException e) {
+			System.err.println("Error: Could not write the results to \"" + file.getName() + "\" (" + e.getMessage() + ").");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Writes one election's positions, rounds, eliminations, tie breaks, and winners
+	 * @param election Name of the election
+	 * @param positions The election's counted positions, in order
+	 */
+	public void writeElection(String election, List<IRV_Result.Position> positions) throws IOException {
+		startElection(election);
+		for (IRV_Result.Position p : positions) {
+			for (IRV_Result.Round round : p.getRounds()) writeRound(p.getNumber(), round);
+			writePosition(p);
+		}
+		endElection();
+	}
+
+	/**
+	 * Starts an election, whose rounds and positions are then written one at a time as they're counted
+	 * @param election Name of the election
+	 */
+	public void startElection(String election) throws IOException {
+		this.election = election;
+		openPosition = 0;
+		lastPass = 0;
+		numPositions = 0;
+		if (json) {
+			out.write(firstElection ? "\n  {\"name\": " : ",\n  {\"name\": ");
+			jsonString(election);
+			out.write(", \"positions\": [");
+		}
+		firstElection = false;
+	}
+
+	/**
+	 * Writes a pass of the current election (and, in the .csv, who it eliminated from the position's last pass)
+	 * @param positionNum Which position the pass is for
+	 * @param round The pass' tallies
+	 */
+	public void writeRound(int positionNum, IRV_Result.Round round) throws IOException {
+		boolean following = openPosition == positionNum; // Else the position's first pass
+		if (json) {
+			if (!following) openJSONPosition(positionNum);
+			writeJSONRound(round, !following);
+		}
+		else {
+			if (following) { // Who was eliminated is recorded on the next round, but written with the last one
+				for (String c : round.getEliminated()) {
+					csvRow("eliminated", election, positionNum, lastPass, c, "", "",
+						   round.isBatchElimination() ? "batch" : "");
+				}
+				if (round.getSurplusFrom() != null) {
+					csvRow("surplus", election, positionNum, lastPass, round.getSurplusFrom(), "", "", "");
+				}
+			}
+			for (int i = 0; i < round.getNumCandidates(); i++) {
+				csvRow("tally", election, positionNum, round.getNumber(), round.getCandidate(i),
+					   IRV_Report.formatVotes(round.getExactVotes(i), round.getDecimals()),
+					   IRV_Report.formatVotes(round.getExactTotalVotes(), round.getDecimals()), "");
+			}
+		}
+		openPosition = positionNum;
+		lastPass = round.getNumber();
+	}
+
+	/**
+	 * Writes how a position of the current election was won, after its rounds
+	 * @param position The counted position
+	 */
+	public void writePosition(IRV_Result.Position position) throws IOException {
+		IRV_Result.TieBreak t = position.getTieBreak();
+		if (json) {
+			if (openPosition != position.getNumber()) openJSONPosition(position.getNumber());
+			out.write("\n    ], \"tieBreak\": ");
+			if (t == null) out.write("null");
+			else {
+				out.write("{\"method\": \"" + t.getMethod() + "\", \"candidateA\": ");
+				jsonString(t.getCandidateA());
+				out.write(", \"candidateB\": ");
+				jsonString(t.getCandidateB());
+				out.write(", \"delta\": " + t.getDelta() + ", \"winner\": ");
+				jsonString(t.getWinner());
+				out.write("}");
+			}
+			out.write(", \"winner\": ");
+			jsonString(position.getWinner());
+			out.write("}");
+		}
+		else { // A position filled without passes of its own was filled in the last pass
+			if (t != null) {
+				String detail = t.getMethod() + " between " + t.getCandidateA();
+				if (t.getCandidateB() != null) detail += " and " + t.getCandidateB();
+				csvRow("tie break", election, position.getNumber(), lastPass, t.getWinner(),
+					   Integer.toString(t.getDelta()), "", detail);
+			}
+			if (position.getWinner() != null) {
+				csvRow("winner", election, position.getNumber(), lastPass, position.getWinner(), "", "", "");
+			}
+		}
+		openPosition = 0;
+		numPositions++;
+	}
+
+	/**
+	 * Finishes the current election (closing its .json object)
+	 */
+	public void endElection() throws IOException {
+		if (json) out.write(numPositions == 0 ? "]}" : "\n  ]}");
+	}
+
+	/**
+	 * Finishes the file (closing the .json's array) and closes it
+	 */
+	public void close() throws IOException {
+		try {
+			if (json) out.write("\n]}\n");
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private void csvRow(String record, String election, int position, int pass, String candidate, String votes,
+						String totalVotes, String detail) throws IOException {
+		out.write(record);
+		out.write(',');
+		csvCell(election);
+		out.write(',' + Integer.toString(position) + ',' + Integer.toString(pass) + ',');
+		csvCell(candidate);
+		out.write(',' + votes + ',' + totalVotes + ',');
+		csvCell(detail);
+		out.write("\r\n");
+	}
+
+	/**
+	 * Writes a cell, quoting it if it has a comma, quote, or line break in it
+	 */
+	private void csvCell(String cell) throws IOException {
+		if (cell.indexOf(',') < 0 && cell.indexOf('"') < 0 && cell.indexOf('\n') < 0 && cell.indexOf('\r') < 0) {
+			out.write(cell);
+			return;
+		}
+		out.write('"');
+		out.write(cell.replace("\"", "\"\""));
+		out.write('"');
+	}
+
+	private void openJSONPosition(int positionNum) throws IOException {
+		out.write(numPositions == 0 ? "\n    {" : ",\n    {");
+		out.write("\"position\": " + positionNum + ", \"rounds\": [");
+		openPosition = positionNum;
+	}
+
+	private void writeJSONRound(IRV_Result.Round round, boolean first) throws IOException {
+		out.write(first ? "\n      {" : ",\n      {");
+		out.write("\"pass\": " + round.getNumber() + ", \"totalVotes\": " +
+				  IRV_Report.formatVotes(round.getExactTotalVotes(), round.getDecimals()));
+		out.write(", \"surplusFrom\": ");
+		jsonString(round.getSurplusFrom());
+		out.write(", \"batchElimination\": " + round.isBatchElimination() + ", \"eliminated\": [");
+		List<String> eliminated = round.getEliminated();
+		for (int i = 0; i < eliminated.size(); i++) {
+			if (i > 0) out.write(", ");
+			jsonString(eliminated.get(i));
+		}
+		out.write("], \"tallies\": [");
+		for (int i = 0; i < round.getNumCandidates(); i++) {
+			out.write(i == 0 ? "{\"candidate\": " : ", {\"candidate\": ");
+			jsonString(round.getCandidate(i));
+			out.write(", \"votes\": " + IRV_Report.formatVotes(round.getExactVotes(i), round.getDecimals()) + "}");
+		}
+		out.write("]}");
+	}
+
+	/**
+	 * Writes a JSON string (or null), escaping quotes, backslashes, and control characters
+	 */
+	private void jsonString(String s) throws IOException {
+		if (s == null) {
+			out.write("null");
+			return;
+		}
+		out.write('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				out.write('\\');
+				out.write(c);
+			}
+			else if (c < 0x20) out.write(String.format("\\u%04x", (int) c));
+			else out.write(c);
+		}
+		out.write('"');
+	}
+
+	/**
+	 * Exports an analysis as it runs: given to the analyzer as its YAV_Progress, it writes each round as soon as it's
+	 *  counted. Elections are counted at the same time, so only the first election that isn't done yet is written as
+	 *  it goes, and the rounds of the elections after it are held until it's done (the file comes out the same as
+	 *  writing each finished election with writeElection())
+	 */
+	public static class Streamer implements YAV_Progress {
+		private final IRV_Export export;
+		private final String[] elections;
+		private final ArrayList<ArrayList<Counted>> held; // Each election's rounds and positions not yet written
+		private int writing; // Election being written
+		private boolean started;
+		private volatile IOException failure;
+
+		/**
+		 * @param export Where the results are written
+		 * @param elections Names of the elections, in the order they're counted (eg. the ballot box's electionOrder)
+		 */
+		public Streamer(IRV_Export export, String[] elections) {
+			this.export = export;
+			this.elections = elections;
+			held = new ArrayList<ArrayList<Counted>>();
+			for (int i = 0; i < elections.length; i++) held.add(new ArrayList<Counted>());
+		}
+
+		public void rowsRead(int rows, long bytesRead, long totalBytes) {}
+
+		public synchronized void roundCounted(int electionNum, int positionNum, IRV_Result.Round round) {
+			Counted counted = new Counted(positionNum, round, null);
+			if (electionNum == writing) write(counted);
+			else held.get(electionNum).add(counted);
+		}
+
+		public synchronized void positionCounted(int electionNum, IRV_Result.Position position) {
+			Counted counted = new Counted(position.getNumber(), null, position);
+			if (electionNum == writing) write(counted);
+			else held.get(electionNum).add(counted);
+		}
+
+		/**
+		 * Finishes the election, then writes what's been held of the next one
+		 */
+		public synchronized void electionCounted(int electionNum, List<IRV_Result.Position> positions) {
+			if (failure != null) return;
+			try {
+				if (!started) export.startElection(elections[electionNum]);
+				export.endElection();
+			}
+			catch (IOException e) {
+				failure = e;
+				return;
+			}
+			started = false;
+			writing = electionNum + 1;
+			if (writing == elections.length) return;
+			for (Counted counted : held.set(writing, null)) write(counted);
+		}
+
+		public boolean isCanceled() {
+			return failure != null;
+		}
+
+		/**
+		 * @return Why the results couldn't be written (or null if nothing's gone wrong)
+		 */
+		public IOException getFailure() {
+			return failure;
+		}
+
+		/**
+		 * Writes a round or position of the election being written
+		 */
+		private void write(Counted counted) {
+			if (failure != null) return;
+			try {
+				if (!started) {
+					export.startElection(elections[writing]);
+					started = true;
+				}
+				if (counted.round != null) export.writeRound(counted.positionNum, counted.round);
+				else export.writePosition(counted.position);
+			}
+			catch (IOException e) {
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * A counted round (with the position it's for) or position, held until its election is written
+	 */
+	private static class Counted {
+		final int positionNum;
+		final IRV_Result.Round round;
+		final IRV_Result.Position position;
+
+		Counted(int positionNum, IRV_Result.Round round, IRV_Result.Position position) {
+			this.positionNum = positionNum;
+			this.round = round;
+			this.position = position;
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package YAV_Election_Analyzer;
+
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.util.List;
+
+/**
+ * Prints an IRV_Result as the familiar round-by-round report (each position's passes with every candidate's votes
+ *  and percentage, how any tie was broken, then every election's winner order)
+ * Kept apart from IRV_Analysis so counting never waits on the console or the GUI; the report is only built when
+ *  (and where) it's wanted. Not thread-safe (it reuses one DecimalFormat), so use one per thread.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class IRV_Report {
+	private final String indent = "    ";
+	private PrintStream out;
+	private DecimalFormat df;
+
+	/**
+	 * @param out Where the report is printed
+	 */
+	public IRV_Report(PrintStream out) {
+		this.out = out;
+		df = new DecimalFormat("##.##");
+		df.setRoundingMode(RoundingMode.DOWN);
+	}
+
+	/**
+	 * Prints every election's positions, then the winner order
+	 */
+	public void print(IRV_Result result) {
+		for (int i = 0; i < result.getNumElections(); i++) printElection(result, i);
+		printWinnerOrder(result);
+	}
+
+	/**
+	 * Prints the rounds of each of an election's positions
+	 */
+	public void printElection(IRV_Result result, int electionNum) {
+		printElection(result.getElection(electionNum), result.getPositions(electionNum));
+	}
+
+	/**
+	 * Same as above, for an election that's been counted before the rest of the result is ready (see YAV_Progress)
+	 */
+	public void printElection(String election, List<IRV_Result.Position> positions) {
+		for (IRV_Result.Position p : positions) printPosition(election, p);
+	}
+
+	/**
+	 * Prints one position's rounds, then how it was decided if it wasn't by majority
+	 */
+	public void printPosition(String election, IRV_Result.Position position) {
+		out.println(election + " Position #" + position.getNumber() + ":");
+		IRV_Result.Round header = null;
+		for (IRV_Result.Round r : position.getRounds()) {
+			// A pass with nobody left in it eliminated nobody, so its header repeats the last elimination (as the
+			//  report always has)
+			boolean emptied = r.getNumCandidates() == 0 && r.getEliminated().isEmpty() && r.getSurplusFrom() == null;
+			if (header == null || !emptied) header = r;
+			printRound(r, header);
+		}
+		if (position.getRounds().isEmpty() && position.getWinner() != null) {
+			out.println(indent + "Filled in the same pass as the position above.");
+		}
+		else if (position.getTieBreak() != null) printTieBreak(position.getTieBreak());
+		else if (position.getWinner() == null) out.println("Something broke, a winner was not found for some reason.");
+	}
+
+	/**
+	 * Prints a pass's header and each candidate's votes (with their percentage of the votes that counted)
+	 * Fractional (STV) votes are printed with all their decimal places
+	 */
+	public void printRound(IRV_Result.Round round) {
+		printRound(round, round);
+	}
+
+	/**
+	 * Same as above, but with the header's elimination or transfer taken from another round
+	 */
+	private void printRound(IRV_Result.Round round, IRV_Result.Round header) {
+		List<String> eliminated = header.getEliminated();
+		if (header.getSurplusFrom() != null) out.println(indent + "Pass #" + round.getNumber() + " (transferred " +
+														 header.getSurplusFrom() + "'s surplus):");
+		else if (eliminated.isEmpty()) out.println(indent + "Pass #" + round.getNumber() + ":");
+		else if (header.isBatchElimination()) {
+			StringBuilder batch = new StringBuilder();
+			for (int i = 0; i < eliminated.size(); i++) {
+				if (i > 0) batch.append(i == eliminated.size() - 1 ? " and " : ", ");
+				batch.append(eliminated.get(i));
+			}
+			out.println(indent + "Pass #" + round.getNumber() + " (eliminated " + batch + " together, since their " +
+						"combined votes couldn't catch the next candidate):");
+		}
+		else out.println(indent + "Pass #" + round.getNumber() + " (eliminated " +
+						 eliminated.get(eliminated.size() - 1) + "):");
+		for (int i = 0; i < round.getNumCandidates(); i++) {
+			long votes = round.getExactVotes(i);
+			out.print(indent + indent + round.getCandidate(i) + ": " + formatVotes(votes, round.getDecimals()) + " vote");
+			if (votes != IRV_Result.scaleOf(round.getDecimals())) out.print("s");
+			out.println(" (" + df.format(100 * ((float) votes / round.getExactTotalVotes())) + "%)");
+		}
+	}
+
+	/**
+	 * @param votes Votes as a fixed-point number
+	 * @param decimals How many decimal places the number has
+	 * @return The votes written out with their decimal point (eg. "12" or "12.50000")
+	 */
+	public static String formatVotes(long votes, int decimals) {
+		if (decimals == 0) return Long.toString(votes);
+		return BigDecimal.valueOf(votes, decimals).toPlainString();
+	}
+
+	/**
+	 * Prints how a tie between the last two candidates was broken
+	 */
+	public void printTieBreak(IRV_Result.TieBreak tieBreak) {
+		out.println("Tie between 2 candidates for this position, initiating ranked-delta tie breaker.");
+		printTieBreakDecision(tieBreak);
+	}
+
+	/**
+	 * Prints just the ranked-delta tie breaker's decision (what rankedTieBreaker() prints)
+	 */
+	public void printTieBreakDecision(IRV_Result.TieBreak tieBreak) {
+		int delta = tieBreak.getDelta();
+		switch (tieBreak.getMethod()) {
+			case NO_COMPETITOR:
+				out.println("Something went wrong, couldn't find " + tieBreak.getCandidateA() + "'s competetor.");
+				break;
+			case RANDOM:
+				out.println("Uh oh, we've got a fully unbreakable tie here. Random winner: " + tieBreak.getWinner());
+				break;
+			default:
+				if (delta < 0) {
+					out.print("Total ranking difference favors " + tieBreak.getWinner() + " by a delta of ");
+					if (delta == -1) out.println(-1 * delta + " point.");
+					else out.println(-1 * delta + " points.");
+				}
+				else {
+					out.println("Total ranking difference favors " + tieBreak.getWinner() + " by a delta of ");
+					if (delta == 1) out.println(delta + " point.");
+					else out.println(delta + " points.");
+				}
+		}
+	}
+
+	/**
+	 * Prints every election's winners, from the highest position down
+	 */
+	public void printWinnerOrder(IRV_Result result) {
+		out.println();
+		out.println("============ ELECTION WINNER ORDER ============");
+		for (int i = 0; i < result.getNumElections(); i++) {
+			out.println(result.getElection(i) + ":");
+			List<String> winners = result.getWinners(i);
+			for (int j = 0; j < winners.size(); j++) {
+				out.println(indent + "#" + Integer.toString(j + 1) + ": " + winners.get(j));
+			}
+		}
+		out.println("============ " + result.getKind().name() + " ANALYSIS COMPLETE ============");
+		out.println();
+	}
+}
@@ -0,0 +1,317 @@
+package YAV_Election_Analyzer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Everything an analysis (see YAV_Analyzer) found, with no formatting: for each election, each position's rounds
+ *  (every candidate's tally, and who was eliminated going into the round), its tie-break decision if it came down to
+ *  one, and its winner
+ * Immutable once built, so it can be handed to another thread (eg. the GUI) or rendered later with IRV_Report
+ * Serializable, so finished results can be kept between runs (see YAV_Cache)
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public final class IRV_Result implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private final YAV_Analyzer.Kind kind;
+	private final List<String> elections;
+	private final List<List<Position>> positions;
+	private final List<List<String>> winners;
+
+	/**
+	 * @param kind Rules the elections were counted by
+	 * @param elections Names of the elections, in electionOrder
+	 * @param positions Each election's counted positions, in order
+	 */
+	public IRV_Result(YAV_Analyzer.Kind kind, List<String> elections, List<List<Position>> positions) {
+		this.kind = kind;
+		this.elections = Collections.unmodifiableList(new ArrayList<String>(elections));
+		List<List<Position>> positionsCopy = new ArrayList<List<Position>>();
+		List<List<String>> winnersCopy = new ArrayList<List<String>>();
+		for (List<Position> electionPositions : positions) {
+			ArrayList<String> electionWinners = new ArrayList<String>();
+			for (Position p : electionPositions) {
+				if (p.getWinner() != null) electionWinners.add(p.getWinner());
+			}
+			positionsCopy.add(Collections.unmodifiableList(new ArrayList<Position>(electionPositions)));
+			winnersCopy.add(Collections.unmodifiableList(electionWinners));
+		}
+		this.positions = Collections.unmodifiableList(positionsCopy);
+		this.winners = Collections.unmodifiableList(winnersCopy);
+	}
+
+	/**
+	 * @param decimals Decimal places of a fixed-point number
+	 * @return What the fixed-point number for 1 is (10 to the power of decimals)
+	 */
+	public static long scaleOf(int decimals) {
+		long scale = 1;
+		for (int i = 0; i < decimals; i++) scale *= 10;
+		return scale;
+	}
+
+	/**
+	 * @return Rules the elections were counted by
+	 */
+	public YAV_Analyzer.Kind getKind() {
+		return kind;
+	}
+
+	public int getNumElections() {
+		return elections.size();
+	}
+
+	public String getElection(int electionNum) {
+		return elections.get(electionNum);
+	}
+
+	/**
+	 * @return The election's counted positions, in order
+	 */
+	public List<Position> getPositions(int electionNum) {
+		return positions.get(electionNum);
+	}
+
+	/**
+	 * @return The election's winners, from the highest position down
+	 */
+	public List<String> getWinners(int electionNum) {
+		return winners.get(electionNum);
+	}
+
+	/**
+	 * The count for one position of an election (a single-winner IRV count with the previous winners withdrawn, or
+	 *  for STV, the passes of the shared count since the previous position was filled)
+	 */
+	public static final class Position implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final int number;
+		private final List<Round> rounds;
+		private final TieBreak tieBreak;
+		private final String winner;
+
+		/**
+		 * @param number Which position (1 being the highest)
+		 * @param rounds The count's rounds, in order (empty for an STV position filled along with the one before it)
+		 * @param tieBreak How a final two-way tie was broken, or null if there wasn't one
+		 * @param winner Who won, or null if the count couldn't find a winner
+		 */
+		public Position(int number, List<Round> rounds, TieBreak tieBreak, String winner) {
+			this.number = number;
+			this.rounds = Collections.unmodifiableList(new ArrayList<Round>(rounds));
+			this.tieBreak = tieBreak;
+			this.winner = winner;
+		}
+
+		public int getNumber() {
+			return number;
+		}
+
+		public List<Round> getRounds() {
+			return rounds;
+		}
+
+		public TieBreak getTieBreak() {
+			return tieBreak;
+		}
+
+		public String getWinner() {
+			return winner;
+		}
+	}
+
+	/**
+	 * One pass of a count: the candidates still standing (in the order they were considered) and their votes
+	 * Votes are whole for IRV; STV's transferred ballots carry fractions, so its votes are fixed-point numbers with
+	 *  getDecimals() decimal places (getExactVotes() is the number without its decimal point, getVotes() is truncated)
+	 */
+	public static final class Round implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final int number, decimals;
+		private final long totalVotes, scale;
+		private final String[] candidates;
+		private final long[] votes;
+		private final List<String> eliminated;
+		private final String surplusFrom;
+		private final boolean batchElimination;
+
+		/**
+		 * @param number Which pass (1 being the first)
+		 * @param candidates Candidates with votes this pass (every remaining candidate in the first pass)
+		 * @param votes Each of the candidates' votes
+		 * @param totalVotes Votes that counted toward someone this pass
+		 * @param eliminated Candidates eliminated at the end of the previous pass (empty for the first pass)
+		 */
+		public Round(int number, String[] candidates, int[] votes, int totalVotes, List<String> eliminated) {
+			this(number, candidates, votes, totalVotes, eliminated, false);
+		}
+
+		/**
+		 * Same as above
+		 * @param batchElimination True if the eliminated candidates were the bottom few eliminated together (rather
+		 *  than the candidates tied for fewest votes)
+		 */
+		public Round(int number, String[] candidates, int[] votes, int totalVotes, List<String> eliminated,
+					 boolean batchElimination) {
+			this(number, candidates, toLongs(votes), totalVotes, 0, eliminated, null, batchElimination);
+		}
+
+		/**
+		 * Same as above, for a count with fractional votes
+		 * @param votes Each of the candidates' votes, as fixed-point numbers
+		 * @param totalVotes Votes that counted toward someone this pass, as a fixed-point number
+		 * @param decimals How many decimal places the fixed-point numbers have
+		 * @param surplusFrom Elected candidate whose surplus was transferred at the end of the previous pass (or null)
+		 */
+		public Round(int number, String[] candidates, long[] votes, long totalVotes, int decimals,
+					 List<String> eliminated, String surplusFrom) {
+			this(number, candidates, votes, totalVotes, decimals, eliminated, surplusFrom, false);
+		}
+
+		private Round(int number, String[] candidates, long[] votes, long totalVotes, int decimals,
+					  List<String> eliminated, String surplusFrom, boolean batchElimination) {
+			if (candidates.length != votes.length) {
+				throw new IllegalArgumentException("Every candidate in a round needs a vote count.");
+			}
+			this.number = number;
+			this.candidates = candidates.clone();
+			this.votes = votes.clone();
+			this.totalVotes = totalVotes;
+			this.decimals = decimals;
+			this.eliminated = Collections.unmodifiableList(new ArrayList<String>(eliminated));
+			this.surplusFrom = surplusFrom;
+			this.batchElimination = batchElimination;
+			scale = scaleOf(decimals);
+		}
+
+		private static long[] toLongs(int[] votes) {
+			long[] longs = new long[votes.length];
+			for (int i = 0; i < votes.length; i++) longs[i] = votes[i];
+			return longs;
+		}
+
+		public int getNumber() {
+			return number;
+		}
+
+		public int getNumCandidates() {
+			return candidates.length;
+		}
+
+		public String getCandidate(int i) {
+			return candidates[i];
+		}
+
+		/**
+		 * @return The candidate's whole votes (any fraction is dropped)
+		 */
+		public int getVotes(int i) {
+			return (int) (votes[i] / scale);
+		}
+
+		/**
+		 * @return The candidate's votes as a fixed-point number with getDecimals() decimal places
+		 */
+		public long getExactVotes(int i) {
+			return votes[i];
+		}
+
+		/**
+		 * @return Whole votes that counted toward someone (any fraction is dropped)
+		 */
+		public int getTotalVotes() {
+			return (int) (totalVotes / scale);
+		}
+
+		public long getExactTotalVotes() {
+			return totalVotes;
+		}
+
+		/**
+		 * @return How many decimal places the exact votes have (0 for whole votes)
+		 */
+		public int getDecimals() {
+			return decimals;
+		}
+
+		public List<String> getEliminated() {
+			return eliminated;
+		}
+
+		/**
+		 * @return Elected candidate whose surplus was transferred at the end of the previous pass, or null
+		 */
+		public String getSurplusFrom() {
+			return surplusFrom;
+		}
+
+		/**
+		 * @return True if the eliminated candidates were the bottom few eliminated together in one batch
+		 */
+		public boolean isBatchElimination() {
+			return batchElimination;
+		}
+
+		public String toString() {
+			return "Pass #" + number + ": " + Arrays.toString(candidates) + " " + Arrays.toString(votes);
+		}
+	}
+
+	/**
+	 * How IRV_Analysis.rankedTieBreaker() settled a tie between the last two candidates
+	 */
+	public static final class TieBreak implements Serializable {
+		private static final long serialVersionUID = 1L;
+		/**
+		 * RANKED_DELTA - decided by the ranked delta over every ballot ranking either candidate
+		 * SHARED_DELTA - the ranked delta was 0, so decided by the delta over only ballots ranking both candidates
+		 * RANDOM       - both deltas were 0, so the winner was picked at random
+		 * NO_COMPETITOR - the other tied candidate couldn't be found, so candidateA won by default (shouldn't happen)
+		 */
+		public enum Method {RANKED_DELTA, SHARED_DELTA, RANDOM, NO_COMPETITOR};
+
+		private final String candidateA, candidateB, winner;
+		private final int delta;
+		private final Method method;
+
+		/**
+		 * @param candidateA First tied candidate
+		 * @param candidateB Second tied candidate (null for NO_COMPETITOR)
+		 * @param method How the tie was decided
+		 * @param delta Deciding delta (negative favors candidateA, positive favors candidateB, 0 if not decided by one)
+		 * @param winner Which of the two won
+		 */
+		public TieBreak(String candidateA, String candidateB, Method method, int delta, String winner) {
+			this.candidateA = candidateA;
+			this.candidateB = candidateB;
+			this.method = method;
+			this.delta = delta;
+			this.winner = winner;
+		}
+
+		public String getCandidateA() {
+			return candidateA;
+		}
+
+		public String getCandidateB() {
+			return candidateB;
+		}
+
+		public Method getMethod() {
+			return method;
+		}
+
+		public int getDelta() {
+			return delta;
+		}
+
+		public String getWinner() {
+			return winner;
+		}
+	}
+}
@@ -0,0 +1,410 @@
+package YAV_Election_Analyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Keeps the running IRV tally for one position in one election, so each pass doesn't have to recount every ballot.
+ * Every ballot group points at its current preference (the first entry on its ranking that isn't blank, already won,
+ *  or eliminated) and sits in a list belonging to that candidate. Eliminating a candidate only moves the groups in
+ *  their list on to their next valid preference, updating the tallies in place.
+ * For multi-winner elections, one tally is kept as the first pass of the next position: withdrawing a winner from it
+ *  only reassigns that winner's ballots, and each position starts from a copy of it instead of recounting.
+ * The first pass is the only full count of the ballots; with enough ballot groups it's split into shards that are
+ *  counted in parallel, each into its own counters and candidate lists, which are then merged.
+ * A tally can also be kept over a YAV_Ballot_Trie instead of the groups: then the candidates' lists hold tree nodes,
+ *  and eliminating a candidate moves each of their nodes' children (every ballot under them) at once, so a pass
+ *  costs as much as the distinct ranking prefixes it moves instead of the ballot groups. Building the tree takes
+ *  far more memory than the groups' first pass, though, so counts only use it when asked to (see
+ *  YAV_Ballot_Box.setTrieCounting()).
+ * More ballots can be added to either kind of tally (see add() and addGroups()), so a first pass can be kept up to
+ *  date as responses come in.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class IRV_Tally {
+	/**
+	 * Marks a ballot group whose ranking has no valid preferences left (its votes are scrapped)
+	 */
+	public static final int EXHAUSTED = -1;
+	/**
+	 * Marks a candidate who has no ballots counted for them (see getFirstGroup())
+	 */
+	public static final int NOT_COUNTED = Integer.MAX_VALUE;
+	/**
+	 * Fewest ballot groups for the first pass to be counted in parallel (below this, fork/join overhead isn't worth it)
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 16;
+	/**
+	 * Fewest ballot groups in one shard of a parallel count
+	 */
+	private static final int MIN_SHARD_SIZE = 1 << 13;
+
+	protected ArrayList<YAV_Ballot_Group> groups;
+	protected YAV_Ballot_Trie trie; // Null unless the tally's kept over a tree (then groups is null)
+	protected int numCandidates, totalVotes;
+	protected int numGroups; // Ballot groups counted so far (not used over a tree)
+	protected int[] tally;
+	/**
+	 * Bitset of the candidates who have already won or been eliminated: candidate c is bit (c % 64) of word c / 64
+	 */
+	protected long[] excluded;
+	/**
+	 * preference[g] = index into group g's ranking of its current preference (or EXHAUSTED)
+	 * head[c] = first group currently counted for candidate c, next[g] = the group after g in the same list
+	 * Over a tree, the lists hold tree nodes instead of groups (and preference isn't used)
+	 */
+	protected int[] preference, head, next;
+	/**
+	 * first[c] = index of the earliest ballot group counted for candidate c (NOT_COUNTED if none are); groups are in
+	 *  the order their first ballots were cast, so this orders the candidates by their first counted ballot
+	 */
+	protected int[] first;
+
+	/**
+	 * Assigns every ballot group to its first valid preference and tallies the first pass (in parallel, on the current
+	 *  ForkJoinPool or the common one, if there are at least PARALLEL_THRESHOLD groups)
+	 * @param ybb Filled ballot box
+	 * @param electionNum Which election
+	 * @param alreadyWon alreadyWon[c] is true if candidate ID c has already won (and will be skipped over)
+	 */
+	public IRV_Tally(YAV_Ballot_Box ybb, int electionNum, boolean[] alreadyWon) {
+		groups = ybb.groups.get(electionNum);
+		numCandidates = ybb.numCandidates[electionNum];
+		tally = new int[numCandidates];
+		excluded = toBitset(alreadyWon);
+		preference = new int[groups.size()];
+		head = new int[numCandidates];
+		next = new int[groups.size()];
+		totalVotes = 0;
+		numGroups = groups.size();
+		first = new int[numCandidates];
+		for (int c = 0; c < numCandidates; c++) head[c] = EXHAUSTED;
+		Arrays.fill(first, NOT_COUNTED);
+		if (numGroups >= PARALLEL_THRESHOLD) {
+			int shardSize = Math.max(MIN_SHARD_SIZE, numGroups / (4 * Runtime.getRuntime().availableProcessors()));
+			Shard all = new Shard(0, numGroups, shardSize);
+			all.invoke();
+			tally = all.tally;
+			head = all.head;
+			first = all.first;
+			totalVotes = all.totalVotes;
+		}
+		else {
+			for (int g = 0; g < numGroups; g++) assign(g, 0);
+		}
+	}
+
+	/**
+	 * Assigns every branch of the tree to its first valid preference and tallies the first pass
+	 * @param trie Rankings of one election (see YAV_Ballot_Box.getTrie())
+	 * @param numCandidates How many candidates are in the election
+	 * @param alreadyWon alreadyWon[c] is true if candidate ID c has already won (and will be skipped over)
+	 */
+	public IRV_Tally(YAV_Ballot_Trie trie, int numCandidates, boolean[] alreadyWon) {
+		this.trie = trie;
+		this.numCandidates = numCandidates;
+		tally = new int[numCandidates];
+		excluded = toBitset(alreadyWon);
+		head = new int[numCandidates];
+		next = new int[trie.size()];
+		first = new int[numCandidates];
+		totalVotes = 0;
+		for (int c = 0; c < numCandidates; c++) head[c] = EXHAUSTED;
+		Arrays.fill(first, NOT_COUNTED);
+		assignChildren(YAV_Ballot_Trie.ROOT);
+	}
+
+	/**
+	 * Copies another tally (sharing its ballot groups), so passes can be run on the copy without changing the original
+	 * @param original Tally to copy
+	 */
+	public IRV_Tally(IRV_Tally original) {
+		groups = original.groups;
+		trie = original.trie;
+		numCandidates = original.numCandidates;
+		totalVotes = original.totalVotes;
+		numGroups = original.numGroups;
+		tally = original.tally.clone();
+		excluded = original.excluded.clone();
+		if (original.preference != null) preference = original.preference.clone();
+		head = original.head.clone();
+		next = original.next.clone();
+		first = original.first.clone();
+	}
+
+	/**
+	 * Eliminates the given candidates and moves each of their ballot groups (or tree nodes' children) to its next
+	 *  valid preference
+	 * All the candidates are excluded before any groups move, so no group can land on another of them
+	 * Also used to withdraw a winner from the tally that the next position starts from
+	 * @param candidates IDs of the candidates to eliminate
+	 */
+	public void eliminate(int... candidates) {
+		for (int c : candidates) excluded[c >>> 6] |= 1L << c;
+		for (int c : candidates) {
+			int g = head[c];
+			head[c] = EXHAUSTED;
+			tally[c] = 0;
+			first[c] = NOT_COUNTED;
+			while (g != EXHAUSTED) {
+				int following = next[g];
+				if (trie != null) {
+					totalVotes -= trie.count[g];
+					assignChildren(g);
+				}
+				else {
+					totalVotes -= groups.get(g).count;
+					assign(g, preference[g] + 1);
+				}
+				g = following;
+			}
+		}
+	}
+
+	/**
+	 * Counts ballots added to the tally's tree, or to one of the ballot groups it has already counted (ballots that
+	 *  start a new group are counted by addGroups() instead), for their first valid preference, without recounting
+	 *  the rest
+	 * Only the tally that the ballots are added through sees them: copies made before the ballots are added (and other
+	 *  tallies over the same tree) are out of date afterwards
+	 * @param ranking Candidate IDs the ballots ranked, in order (which may include candidates new to the election, if
+	 *  the tally's kept over a tree)
+	 * @param ballots How many ballots cast the ranking
+	 * @param group Index of the ballots' group in the election (see YAV_Ballot_Trie.add())
+	 */
+	public void add(short[] ranking, int ballots, int group) {
+		if (trie == null) { // The group's already in its candidate's list, if it has one
+			int j = nextPreference(ranking, 0);
+			if (j != EXHAUSTED) {
+				tally[ranking[j]] += ballots;
+				totalVotes += ballots;
+			}
+			return;
+		}
+		int oldSize = trie.size();
+		trie.add(ranking, ballots, group);
+		if (next.length < trie.size()) {
+			next = Arrays.copyOf(next, Math.max(trie.size(), next.length + (next.length >> 1)));
+		}
+		for (short c : ranking) {
+			if (c != YAV_Ballot.NO_VOTE && c >= numCandidates) addCandidates(c + 1);
+		}
+		int length = ranking.length; // Blank entries at the end aren't in the tree (see YAV_Ballot_Trie.add())
+		while (length > 0 && ranking[length - 1] == YAV_Ballot.NO_VOTE) length--;
+		int node = YAV_Ballot_Trie.ROOT;
+		for (int j = 0; j < length; j++) {
+			short c = ranking[j];
+			node = trie.firstChild[node];
+			while (trie.candidate[node] != c) node = trie.nextSibling[node];
+			if (c == YAV_Ballot.NO_VOTE || isExcluded(c)) continue;
+			// A node that was already in the tree is already in its candidate's list (see assignChildren())
+			if (node >= oldSize) {
+				next[node] = head[c];
+				head[c] = node;
+				first[c] = Math.min(first[c], trie.firstGroup[node]);
+			}
+			tally[c] += ballots;
+			totalVotes += ballots;
+			return;
+		}
+	}
+
+	/**
+	 * Counts the ballot groups appended to the election since the tally was made (or last caught up) for their first
+	 *  valid preference, without recounting the rest
+	 * Only for tallies kept over the groups; copies made before the groups are counted are out of date afterwards
+	 */
+	public void addGroups() {
+		if (next.length < groups.size()) {
+			int capacity = Math.max(groups.size(), next.length + (next.length >> 1));
+			preference = Arrays.copyOf(preference, capacity);
+			next = Arrays.copyOf(next, capacity);
+		}
+		for (; numGroups < groups.size(); numGroups++) {
+			for (short c : groups.get(numGroups).ranking) {
+				if (c != YAV_Ballot.NO_VOTE && c >= numCandidates) addCandidates(c + 1);
+			}
+			assign(numGroups, 0);
+		}
+	}
+
+	/**
+	 * Makes room for candidates who were added to the election after the tally was made
+	 * @param numCandidates How many candidates are now in the election
+	 */
+	private void addCandidates(int numCandidates) {
+		tally = Arrays.copyOf(tally, numCandidates);
+		head = Arrays.copyOf(head, numCandidates);
+		first = Arrays.copyOf(first, numCandidates);
+		for (int c = this.numCandidates; c < numCandidates; c++) {
+			head[c] = EXHAUSTED;
+			first[c] = NOT_COUNTED;
+		}
+		excluded = Arrays.copyOf(excluded, (numCandidates + 63) >>> 6);
+		this.numCandidates = numCandidates;
+	}
+
+	/**
+	 * @param flags flags[c] is true if candidate ID c is in the set
+	 * @return The same set as a bitset (see excluded)
+	 */
+	private static long[] toBitset(boolean[] flags) {
+		long[] bits = new long[(flags.length + 63) >>> 6];
+		for (int c = 0; c < flags.length; c++) {
+			if (flags[c]) bits[c >>> 6] |= 1L << c;
+		}
+		return bits;
+	}
+
+	/**
+	 * Finds group g's first valid preference at or after the given rank, and counts the group for that candidate
+	 * @param g Index of the ballot group
+	 * @param fromRank Rank to start searching from
+	 */
+	private void assign(int g, int fromRank) {
+		YAV_Ballot_Group group = groups.get(g);
+		preference[g] = nextPreference(group.ranking, fromRank);
+		if (preference[g] != EXHAUSTED) {
+			short c = group.ranking[preference[g]];
+			next[g] = head[c];
+			head[c] = g;
+			first[c] = Math.min(first[c], g);
+			tally[c] += group.count;
+			totalVotes += group.count;
+		}
+	}
+
+	/**
+	 * Counts each child of a tree node for its candidate, or if that candidate is blank or excluded, passes on to the
+	 *  child's own children (ballots that end at the node are exhausted)
+	 * @param node Tree node whose ballots are being moved on
+	 */
+	private void assignChildren(int node) {
+		for (int child = trie.firstChild[node]; child != YAV_Ballot_Trie.NONE; child = trie.nextSibling[child]) {
+			short c = trie.candidate[child];
+			if (c == YAV_Ballot.NO_VOTE || (excluded[c >>> 6] & (1L << c)) != 0) {
+				assignChildren(child);
+				continue;
+			}
+			next[child] = head[c];
+			head[c] = child;
+			first[c] = Math.min(first[c], trie.firstGroup[child]);
+			tally[c] += trie.count[child];
+			totalVotes += trie.count[child];
+		}
+	}
+
+	/**
+	 * @param ranking Ranking of a ballot group
+	 * @param fromRank Rank to start searching from
+	 * @return Index of the first entry at or after fromRank that isn't blank or excluded, or EXHAUSTED
+	 */
+	private int nextPreference(short[] ranking, int fromRank) {
+		for (int j = fromRank; j < ranking.length; j++) {
+			short c = ranking[j];
+			if (c != YAV_Ballot.NO_VOTE && (excluded[c >>> 6] & (1L << c)) == 0) return j;
+		}
+		return EXHAUSTED;
+	}
+
+	/**
+	 * Counts the first pass for a range of ballot groups, splitting it in half until it's no bigger than shardSize
+	 * Each shard keeps its own counters and candidate lists (with a tail, so the lists can be joined when merging);
+	 *  shards only write preference and next entries for their own groups, so they never touch the same cells
+	 */
+	private class Shard extends RecursiveAction {
+		private static final long serialVersionUID = 6120484127342117781L; // Just shutting up Java warnings
+		private final int from, to, shardSize;
+		private int[] tally, head, tail, first;
+		private int totalVotes;
+
+		Shard(int from, int to, int shardSize) {
+			this.from = from;
+			this.to = to;
+			this.shardSize = shardSize;
+		}
+
+		protected void compute() {
+			if (to - from > shardSize) {
+				Shard left = new Shard(from, (from + to) >>> 1, shardSize);
+				Shard right = new Shard((from + to) >>> 1, to, shardSize);
+				invokeAll(left, right);
+				merge(left, right);
+				return;
+			}
+			tally = new int[numCandidates];
+			head = new int[numCandidates];
+			tail = new int[numCandidates];
+			first = new int[numCandidates];
+			for (int c = 0; c < numCandidates; c++) head[c] = EXHAUSTED;
+			Arrays.fill(first, NOT_COUNTED);
+			for (int g = from; g < to; g++) {
+				YAV_Ballot_Group group = groups.get(g);
+				preference[g] = nextPreference(group.ranking, 0);
+				if (preference[g] == EXHAUSTED) continue;
+				short c = group.ranking[preference[g]];
+				if (head[c] == EXHAUSTED) {
+					tail[c] = g;
+					first[c] = g; // The shard's groups are counted in order
+				}
+				next[g] = head[c];
+				head[c] = g;
+				tally[c] += group.count;
+				totalVotes += group.count;
+			}
+		}
+
+		/**
+		 * Adds up both halves' counters and appends the right half's candidate lists to the left half's (whose groups
+		 *  all come first)
+		 */
+		private void merge(Shard left, Shard right) {
+			tally = left.tally;
+			head = left.head;
+			tail = left.tail;
+			first = left.first;
+			totalVotes = left.totalVotes + right.totalVotes;
+			for (int c = 0; c < numCandidates; c++) {
+				tally[c] += right.tally[c];
+				if (right.head[c] == EXHAUSTED) continue;
+				if (head[c] == EXHAUSTED) {
+					head[c] = right.head[c];
+					first[c] = right.first[c];
+				}
+				else next[tail[c]] = right.head[c];
+				tail[c] = right.tail[c];
+			}
+		}
+	}
+
+	/**
+	 * @return How many votes the candidate currently has (0 once they've been eliminated)
+	 */
+	public int getTally(int candidate) {
+		return tally[candidate];
+	}
+
+	/**
+	 * @return Index of the earliest ballot group currently counted for the candidate, or NOT_COUNTED if none are
+	 */
+	public int getFirstGroup(int candidate) {
+		return first[candidate];
+	}
+
+	/**
+	 * @return How many votes are currently counted for any candidate (exhausted ballots aren't counted)
+	 */
+	public int getTotalVotes() {
+		return totalVotes;
+	}
+
+	/**
+	 * @return Whether the candidate has already won or been eliminated
+	 */
+	public boolean isExcluded(int candidate) {
+		return (excluded[candidate >>> 6] & (1L << candidate)) != 0;
+	}
+}
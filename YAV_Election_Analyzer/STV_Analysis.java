@@ -0,0 +1,384 @@
+package YAV_Election_Analyzer;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Takes a YAV_Ballot_Box and fills every position of each election in a single Single Transferable Vote count
+ * See https://en.wikipedia.org/wiki/Counting_single_transferable_votes for STV in general; surpluses here are moved
+ *  by the weighted inclusive Gregory method (as in the Scottish local government rules):
+ *  The quota is the Droop quota, floor(valid votes / (positions + 1)) + 1
+ *  A candidate who reaches the quota is elected; their surplus (votes over the quota) is transferred by moving every
+ *   ballot they hold to its next continuing candidate, at the ballot's weight times surplus / the candidate's votes
+ *  With no surplus left to transfer, the candidate with the fewest votes is eliminated and their ballots move on at
+ *   the weights they arrived with (a tie for fewest goes to whoever had fewer in the latest pass where they differed,
+ *   then to chance)
+ *  Once only as many continuing candidates are left as open positions, they're all elected
+ * The ballots are counted through the election's YAV_Ballot_Trie, where every node carries one weight (the ballots
+ *  under it have been through the same transfers, so they always move together). Weights, transfer values, and
+ *  tallies are exact fixed-point numbers with DECIMALS decimal places, truncated like the Scottish rules, so counts
+ *  are the same on every machine. Each pass only moves the ballots of the one candidate who was elected or
+ *  eliminated (like IRV_Tally), instead of recounting the election once per position.
+ * The rounds are recorded like IRV_Analysis's, so IRV_Report and IRV_Export work the same: each position gets the
+ *  passes since the previous position was filled (none, when it was filled in the same pass as the one before it).
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class STV_Analysis implements YAV_Analyzer {
+	/**
+	 * Decimal places of every weight, transfer value, and tally
+	 */
+	public static final int DECIMALS = 5;
+	/**
+	 * The fixed-point number for one whole vote
+	 */
+	public static final long ONE = IRV_Result.scaleOf(DECIMALS);
+	private static final int EXHAUSTED = -1, CONTINUING = 0, ELECTED = 1, ELIMINATED = 2;
+
+	//        Election #, PositionRank #, the position's passes and who filled it
+	private ArrayList<ArrayList<IRV_Result.Position>> positions;
+	private IRV_Result result;
+	private YAV_Progress progress;
+
+	/**
+	 * Analyzes the elections in parallel on the common ForkJoinPool
+	 * @param ybb Filled ballot box
+	 */
+	public STV_Analysis(YAV_Ballot_Box ybb) {
+		this(ybb, ForkJoinPool.commonPool(), null);
+	}
+
+	/**
+	 * Counts each election as its own task on the executor, recording every pass in an IRV_Result
+	 * Hands each round and position to progress as soon as it's counted, and each election once it (and every
+	 *  election before it) is counted, and stops early if the analysis is canceled
+	 * @param ybb Filled ballot box
+	 * @param executor Runs the elections (eg. a ForkJoinPool, or a single thread to run them one after another)
+	 * @param progress Receives each counted round, position, and election, and is checked for cancellation between
+	 *  passes (or null)
+	 */
+	public STV_Analysis(final YAV_Ballot_Box ybb, ExecutorService executor, YAV_Progress progress) {
+		this.progress = progress;
+		positions = new ArrayList<ArrayList<IRV_Result.Position>>();
+		ArrayList<Future<?>> elections = new ArrayList<Future<?>>();
+		for (int i = 0; i < ybb.numElections ; i++) positions.add(new ArrayList<IRV_Result.Position>());
+		for (int i = 0; i < ybb.numElections ; i++) {
+			final int electionNum = i;
+			elections.add(executor.submit(new Runnable() {
+				public void run() {
+					new Count(ybb, electionNum).run();
+				}
+			}));
+		}
+		try {
+			for (int i = 0; i < ybb.numElections ; i++) {
+				elections.get(i).get();
+				if (isCanceled()) return;
+				if (progress != null) progress.electionCounted(i, positions.get(i));
+			}
+		}
+		catch (InterruptedException e) {
+			for (Future<?> election : elections) election.cancel(true);
+			Thread.currentThread().interrupt();
+			return;
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+		ArrayList<List<IRV_Result.Position>> electionPositions = new ArrayList<List<IRV_Result.Position>>();
+		for (ArrayList<IRV_Result.Position> p : positions) electionPositions.add(p);
+		result = new IRV_Result(Kind.STV, Arrays.asList(ybb.electionOrder), electionPositions);
+	}
+
+	/**
+	 * @return Every election's passes and winners (null if the analysis was interrupted or canceled)
+	 */
+	public IRV_Result getResult() {
+		return result;
+	}
+
+	public Kind getKind() {
+		return Kind.STV;
+	}
+
+	public boolean isBatchElimination() {
+		return false;
+	}
+
+	private boolean isCanceled() {
+		return progress != null && progress.isCanceled();
+	}
+
+	/**
+	 * @return a * b / c, truncated, without overflowing when a * b doesn't fit in a long
+	 */
+	private static long mulDiv(long a, long b, long c) {
+		if (b == 0 || a <= Long.MAX_VALUE / b) return a * b / c;
+		return BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).divide(BigInteger.valueOf(c)).longValue();
+	}
+
+	/**
+	 * The running count of one election
+	 * Like IRV_Tally over a YAV_Ballot_Trie, each candidate has a list of the tree nodes counted for them, so
+	 *  electing or eliminating a candidate only moves the children of the nodes in their list (every ballot under a
+	 *  node has the same weight, since they've all been through the same transfers)
+	 */
+	private class Count {
+		private final YAV_Ballot_Box ybb;
+		private final int electionNum, numCandidates, numSeats;
+		private final YAV_Ballot_Trie trie;
+		private final ArrayList<IRV_Result.Position> electionPositions;
+		private final ArrayList<IRV_Result.Round> rounds;
+		private final ArrayList<long[]> history; // Every pass's tallies, for breaking ties for fewest votes
+		private final ArrayList<Integer> surpluses; // Elected candidates whose surplus hasn't been transferred yet
+		private final int[] state, head, next;
+		private final long[] weight, tally;
+		private long quota;
+		private long moved; // Ballots moved to a candidate since the last pass was recorded (for YAV_Metrics)
+		private int numElected, numContinuing, firstUnreported;
+
+		Count(YAV_Ballot_Box ybb, int electionNum) {
+			this.ybb = ybb;
+			this.electionNum = electionNum;
+			numCandidates = ybb.numCandidates[electionNum];
+			numSeats = Math.min(ybb.numPositions[electionNum], numCandidates);
+			trie = ybb.getTrie(electionNum);
+			electionPositions = positions.get(electionNum);
+			rounds = new ArrayList<IRV_Result.Round>();
+			history = new ArrayList<long[]>();
+			surpluses = new ArrayList<Integer>();
+			state = new int[numCandidates];
+			tally = new long[numCandidates];
+			head = new int[numCandidates];
+			next = new int[trie.size()];
+			weight = new long[trie.size()];
+			numContinuing = numCandidates;
+		}
+
+		/**
+		 * Counts the first preferences, then runs passes until every position is filled
+		 */
+		void run() {
+			long start = System.nanoTime();
+			Arrays.fill(head, EXHAUSTED);
+			assignChildren(YAV_Ballot_Trie.ROOT, ONE);
+			long validVotes = 0;
+			for (int c = 0; c < numCandidates; c++) validVotes += tally[c] / ONE;
+			quota = (validVotes / (numSeats + 1) + 1) * ONE;
+			List<String> eliminated = new ArrayList<String>();
+			String surplusFrom = null;
+			while (numElected < numSeats) {
+				if (isCanceled()) return;
+				YAV_Events.Pass event = new YAV_Events.Pass();
+				event.begin();
+				int positionNum = numElected + 1;
+				recordRound(eliminated, surplusFrom);
+				eliminated = new ArrayList<String>();
+				surplusFrom = null;
+				electQuotas();
+				if (numElected < numSeats && numContinuing <= numSeats - numElected) electContinuing();
+				if (numElected == numSeats) {
+					recordPass(event, positionNum, 0);
+					break;
+				}
+				int transferring = largestSurplus();
+				if (transferring != EXHAUSTED) {
+					transferSurplus(transferring);
+					surplusFrom = ybb.candidateOrder[electionNum][transferring];
+				}
+				else {
+					int lowest = fewestVotes();
+					eliminate(lowest);
+					eliminated.add(ybb.candidateOrder[electionNum][lowest]);
+				}
+				recordPass(event, positionNum, eliminated.size());
+			}
+			YAV_Metrics.electionAnalyzed(System.nanoTime() - start);
+		}
+
+		/**
+		 * Counts each child of a tree node for its candidate at the given weight, or if that candidate is blank or no
+		 *  longer continuing, passes on to the child's own children (ballots that end at the node are exhausted)
+		 * @param node Tree node whose ballots are being moved on
+		 * @param w Weight of every ballot under the node, as a fixed-point number
+		 */
+		private void assignChildren(int node, long w) {
+			for (int child = trie.firstChild[node]; child != YAV_Ballot_Trie.NONE; child = trie.nextSibling[child]) {
+				short c = trie.candidate[child];
+				if (c == YAV_Ballot.NO_VOTE || state[c] != CONTINUING) {
+					assignChildren(child, w);
+					continue;
+				}
+				weight[child] = w;
+				next[child] = head[c];
+				head[c] = child;
+				tally[c] += w * trie.count[child];
+				moved += trie.count[child];
+			}
+		}
+
+		/**
+		 * Records the pass: every candidate who hasn't been eliminated, with their votes (elected candidates keep
+		 *  the quota once their surplus has been transferred)
+		 */
+		private void recordRound(List<String> eliminated, String surplusFrom) {
+			int standing = 0;
+			for (int c = 0; c < numCandidates; c++) {
+				if (state[c] != ELIMINATED) standing++;
+			}
+			String[] candidates = new String[standing];
+			long[] votes = new long[standing];
+			long totalVotes = 0;
+			int k = 0;
+			for (int c = 0; c < numCandidates; c++) {
+				if (state[c] == ELIMINATED) continue;
+				candidates[k] = ybb.candidateOrder[electionNum][c];
+				votes[k++] = tally[c];
+				totalVotes += tally[c];
+			}
+			IRV_Result.Round round = new IRV_Result.Round(rounds.size() + 1, candidates, votes, totalVotes, DECIMALS,
+														  eliminated, surplusFrom);
+			rounds.add(round);
+			if (progress != null) progress.roundCounted(electionNum, numElected + 1, round);
+			history.add(tally.clone());
+			YAV_Metrics.passCounted(moved);
+			moved = 0;
+		}
+
+		/**
+		 * Ends the latest pass's YAV_Events.Pass event
+		 */
+		private void recordPass(YAV_Events.Pass event, int positionNum, int numEliminated) {
+			IRV_Result.Round round = rounds.get(rounds.size() - 1);
+			event.record("STV", ybb.electionOrder[electionNum], positionNum, round.getNumber(),
+						 round.getExactTotalVotes() / ONE, round.getNumCandidates(), numEliminated);
+		}
+
+		/**
+		 * Elects every continuing candidate who's reached the quota, most votes first
+		 */
+		private void electQuotas() {
+			while (numElected < numSeats) {
+				int most = EXHAUSTED;
+				for (int c = 0; c < numCandidates; c++) {
+					if (state[c] == CONTINUING && tally[c] >= quota && (most == EXHAUSTED || tally[c] > tally[most])) {
+						most = c;
+					}
+				}
+				if (most == EXHAUSTED) return;
+				elect(most);
+				if (tally[most] > quota) surpluses.add(most);
+			}
+		}
+
+		/**
+		 * Elects every continuing candidate (there are no more of them than open positions), most votes first
+		 */
+		private void electContinuing() {
+			while (numContinuing > 0 && numElected < numSeats) {
+				int most = EXHAUSTED;
+				for (int c = 0; c < numCandidates; c++) {
+					if (state[c] == CONTINUING && (most == EXHAUSTED || tally[c] > tally[most])) most = c;
+				}
+				elect(most);
+			}
+		}
+
+		/**
+		 * Marks the candidate elected and fills the next position with the passes since the last one was filled
+		 */
+		private void elect(int c) {
+			state[c] = ELECTED;
+			numElected++;
+			numContinuing--;
+			IRV_Result.Position position = new IRV_Result.Position(numElected,
+																   rounds.subList(firstUnreported, rounds.size()),
+																   null, ybb.candidateOrder[electionNum][c]);
+			electionPositions.add(position);
+			firstUnreported = rounds.size();
+			YAV_Metrics.positionCounted();
+			if (progress != null) progress.positionCounted(electionNum, position);
+		}
+
+		/**
+		 * @return The elected candidate with the largest surplus still to transfer (the earliest elected of any tied),
+		 *  or EXHAUSTED if there isn't one
+		 */
+		private int largestSurplus() {
+			int largest = -1;
+			for (int i = 0; i < surpluses.size(); i++) {
+				if (largest == -1 || tally[surpluses.get(i)] > tally[surpluses.get(largest)]) largest = i;
+			}
+			if (largest == -1) return EXHAUSTED;
+			return surpluses.remove(largest);
+		}
+
+		/**
+		 * Moves every ballot the elected candidate holds to its next continuing preference, at its weight times
+		 *  the transfer value (surplus / the candidate's votes); the candidate keeps the quota, and whatever's lost
+		 *  to truncation or exhausted ballots is no longer counted
+		 */
+		private void transferSurplus(int c) {
+			long transferValue = mulDiv(tally[c] - quota, ONE, tally[c]);
+			int g = head[c];
+			head[c] = EXHAUSTED;
+			tally[c] = quota;
+			while (g != EXHAUSTED) {
+				int following = next[g];
+				long w = weight[g] * transferValue / ONE;
+				if (w > 0) assignChildren(g, w);
+				g = following;
+			}
+		}
+
+		/**
+		 * @return The continuing candidate with the fewest votes; a tie goes to whoever had fewer in the latest earlier
+		 *  pass where the tied candidates differed, and if they never did, to a random one of them
+		 */
+		private int fewestVotes() {
+			ArrayList<Integer> fewest = new ArrayList<Integer>();
+			for (int c = 0; c < numCandidates; c++) {
+				if (state[c] != CONTINUING) continue;
+				if (!fewest.isEmpty() && tally[c] < tally[fewest.get(0)]) fewest.clear();
+				if (fewest.isEmpty() || tally[c] == tally[fewest.get(0)]) fewest.add(c);
+			}
+			boolean tied = fewest.size() > 1;
+			for (int r = history.size() - 2; r >= 0 && fewest.size() > 1; r--) {
+				long[] earlier = history.get(r);
+				long least = Long.MAX_VALUE;
+				for (int c : fewest) least = Math.min(least, earlier[c]);
+				ArrayList<Integer> stillTied = new ArrayList<Integer>();
+				for (int c : fewest) {
+					if (earlier[c] == least) stillTied.add(c);
+				}
+				fewest = stillTied;
+			}
+			if (tied) YAV_Metrics.tieBroken(fewest.size() > 1);
+			return fewest.get((int) (Math.random() * fewest.size()));
+		}
+
+		/**
+		 * Excludes the candidate and moves each of their ballots on at the weight it arrived with
+		 */
+		private void eliminate(int c) {
+			state[c] = ELIMINATED;
+			numContinuing--;
+			int g = head[c];
+			head[c] = EXHAUSTED;
+			tally[c] = 0;
+			while (g != EXHAUSTED) {
+				int following = next[g];
+				assignChildren(g, weight[g]);
+				g = following;
+			}
+		}
+	}
+}
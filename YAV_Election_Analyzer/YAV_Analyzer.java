@@ -0,0 +1,83 @@
+package YAV_Election_Analyzer;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A way of counting a filled YAV_Ballot_Box, so the GUI, the batch runner, and the watcher don't care which rules
+ *  the elections are counted by. An analyzer does its count when it's built and hands back the rounds and winners
+ *  as an IRV_Result (which every count's rounds fit, whatever the rules), so IRV_Report and IRV_Export work for all.
+ * Kind lists the available counts and builds one, eg. for the GUI's drop-down or the batch runner's -a option.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public interface YAV_Analyzer {
+	/**
+	 * IRV - one Instant Runoff count per position, with the previous winners withdrawn (see IRV_Analysis)
+	 * STV - a single Single Transferable Vote count that fills every position at once (see STV_Analysis)
+	 */
+	public enum Kind {
+		IRV("Instant Runoff") {
+			public YAV_Analyzer analyze(YAV_Ballot_Box ybb, ExecutorService executor, YAV_Progress progress,
+										boolean batchElimination) {
+				return new IRV_Analysis(ybb, executor, progress, batchElimination);
+			}
+		},
+		STV("Single Transferable Vote") {
+			public YAV_Analyzer analyze(YAV_Ballot_Box ybb, ExecutorService executor, YAV_Progress progress,
+										boolean batchElimination) {
+				if (batchElimination) throw new IllegalArgumentException("STV can't eliminate candidates in batches.");
+				return new STV_Analysis(ybb, executor, progress);
+			}
+		};
+
+		private final String description;
+
+		private Kind(String description) {
+			this.description = description;
+		}
+
+		/**
+		 * Counts every election in the ballot box by this kind's rules
+		 * @param ybb Filled ballot box
+		 * @param executor Runs the elections (eg. a ForkJoinPool, or a single thread to run them one after another)
+		 * @param progress Receives each counted round, position, and election, and is checked for cancellation
+		 *  between passes (or null)
+		 * @return The finished (or canceled) analysis
+		 */
+		public YAV_Analyzer analyze(YAV_Ballot_Box ybb, ExecutorService executor, YAV_Progress progress) {
+			return analyze(ybb, executor, progress, false);
+		}
+
+		/**
+		 * Same as above, optionally eliminating the bottom candidates together when none of them could survive
+		 * @param batchElimination Only for IRV (see IRV_Analysis)
+		 * @throws IllegalArgumentException If batchElimination is asked of a kind that doesn't have it
+		 */
+		public abstract YAV_Analyzer analyze(YAV_Ballot_Box ybb, ExecutorService executor, YAV_Progress progress,
+											 boolean batchElimination);
+
+		/**
+		 * @return The rules' full name (eg. "Instant Runoff")
+		 */
+		public String getDescription() {
+			return description;
+		}
+	}
+
+	/**
+	 * @return Every election's rounds and winners (null if the analysis was interrupted or canceled)
+	 */
+	IRV_Result getResult();
+
+	/**
+	 * @return Which rules the elections were counted by
+	 */
+	Kind getKind();
+
+	/**
+	 * @return Whether the bottom candidates could be eliminated together, so a recount (eg. by YAV_TSV_Watcher) can
+	 *  be run with the same options
+	 */
+	boolean isBatchElimination();
+}
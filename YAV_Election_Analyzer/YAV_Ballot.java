@@ -2,75 +2,79 @@ package YAV_Election_Analyzer;
 
 /**
  * A class for keeping track of all the data in an individual's vote.
- * 
+ *
  * @author Grant Barker, for use with Louisiana Youth & Government conference elections
  */
 
 public class YAV_Ballot {
+	/**
+	 * ID stored in place of a candidate where the voter left the ranking blank
+	 */
+	public static final short NO_VOTE = -1;
+
 	/**
 	 * Row # = election (number determined by the order of YAV_Config.elections)
-	 * Column # = ranking number (the String in this location is a candidate's name, "" is no vote)
-	 * Rectangular 2D array, no rows of unequal length (length determined by maxNumOfCandidates)
+	 * Column # = ranking number (the short in this location is a candidate's ID, NO_VOTE is no vote)
+	 * Candidate IDs come from each election's YAV_Candidate_Dictionary (see YAV_Ballot_Box.candidateOrder)
+	 * Rows are only as long as the number of candidates (or .tsv columns) in their election
 	 */
-	protected String[][] candidateRanking;
-	
+	protected short[][] candidateRanking;
+
 	/**
-	 * Creates the bounds for a given ballot and sets all votes to the empty String
-	 * @param int numElections - Number of elections being evaluated (including ones not used by this ballot)
-	 * @param int maxNumOfCandidates - Maximum number of candidates running for any given position
+	 * Creates the bounds for a given ballot and sets all votes to NO_VOTE
+	 * @param int[] numCandidates - Number of candidates running (or ranking columns) in each election being
+	 * 								evaluated (including ones not used by this ballot)
 	 */
-	public YAV_Ballot(int numElections, int maxNumOfCandidates) {
-		candidateRanking = new String[numElections][maxNumOfCandidates];
-		// Set each item as an empty String so elections the person didn't vote in aren't counted
-		String[] nullVoteRow = new String[maxNumOfCandidates];
-		for (int i = 0; i < nullVoteRow.length; i++) {
-			nullVoteRow[i] = "";
-		}
+	public YAV_Ballot(int[] numCandidates) {
+		candidateRanking = new short[numCandidates.length][];
+		// Set each item to NO_VOTE so elections the person didn't vote in aren't counted
 		for (int i = 0; i < candidateRanking.length; i++) {
-			this.setNth(i, nullVoteRow.clone());
+			candidateRanking[i] = new short[numCandidates[i]];
+			for (int j = 0; j < candidateRanking[i].length; j++) {
+				candidateRanking[i][j] = NO_VOTE;
+			}
 		}
 	}
-	
+
 	/**
 	 * Getters/setters for the array of preferential votes (0-indexed)
 	 * No checking that the parameters are within the bounds of the array, yet, so be careful (sorry)
 	 */
-	public String getNN(int electionNum, int choiceNum) {
+	public short getNN(int electionNum, int choiceNum) {
 		return candidateRanking[electionNum][choiceNum];
 	}
-	public void setNN(int electionNum, int choiceNum, String choice) {
+	public void setNN(int electionNum, int choiceNum, short choice) {
 		candidateRanking[electionNum][choiceNum] = choice;
 	}
-	
+
 	/**
 	 * Getter/setter for Nth row to quickly initialize a whole row
 	 */
-	public String[] getNth(int electionNum) {
+	public short[] getNth(int electionNum) {
 		return candidateRanking[electionNum];
 	}
-	public void setNth(int electionNum, String... choices) {
+	public void setNth(int electionNum, short... choices) {
 		for (int i = 0; i < candidateRanking[electionNum].length; i++) {
 			if (i < choices.length) candidateRanking[electionNum][i] = choices[i];
 			else break;
 		}
 	}
-	
+
 	/**
-	 * Returns all relevant info contained on the ballot in a debug-friendly String
+	 * Returns all relevant info contained on the ballot in a debug-friendly String (candidate IDs, not names)
 	 */
 	public String toString() {
-		String result = "";
+		StringBuilder result = new StringBuilder();
 		for (int i = 0; i < candidateRanking.length; i++) {
-			if (candidateRanking[i][0].equals("")) result = result.concat("null ");
+			if (candidateRanking[i].length == 0 || candidateRanking[i][0] == NO_VOTE) result.append("null");
 			else {
 				for (int j = 0; j < candidateRanking[i].length; j++) {
-					result = result.concat(candidateRanking[i][j] + " ");
+					if (j > 0) result.append(" ");
+					result.append(candidateRanking[i][j]);
 				}
 			}
-			result = result.substring(0, result.length() - 1);
-			result = result.concat(System.getProperty("line.separator"));
+			if (i < candidateRanking.length - 1) result.append(System.getProperty("line.separator"));
 		}
-		if (result.contains(System.getProperty("line.separator"))) result = result.substring(0, result.length() - 1);
-		return result;
+		return result.toString();
 	}
 }
@@ -1,41 +1,77 @@
 package YAV_Election_Analyzer;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 
 /**
  * A class for housing the set of ballots. Helps to build up that set from the .tsv
+ * Every ballot is also filed into a weighted YAV_Ballot_Group for each election, which is what gets analyzed.
+ * In compressed mode, identical rankings within an election share one group (with a count) and the individual
+ *  ballots aren't kept at all, so analysis scales with the number of distinct rankings instead of voters.
+ * The box also keeps the IRV_Tally of each election's first pass (counted when it's first asked for) over its groups,
+ *  or over the election's YAV_Ballot_Trie with setTrieCounting(), and builds the tree itself for the counts that
+ *  need it. Ballots added afterwards (eg. appended from the .tsv while it's watched) are added to both in place
+ *  instead of recounting them, so a recount only has to run the passes.
  * 
  * @author Grant Barker, for use with Louisiana Youth & Government conference elections
  */
 
 public class YAV_Ballot_Box {
 	protected HashSet<YAV_Ballot> box;
-	protected int numElections, maxNumOfCandidates, numCandidates[], numPositions[];
+	//        Election #, distinct rankings (every ballot gets its own group unless compressed)
+	protected ArrayList<ArrayList<YAV_Ballot_Group>> groups;
+	protected boolean compressed;
+	protected long tsvPosition; // Byte offset in the .tsv just past the last row deposited (see YAV_TSV_Reader.append)
+	protected int numBallots, numElections, maxNumOfCandidates, numCandidates[], numPositions[];
 	protected String electionOrder[], candidateOrder[][];
+	protected YAV_Candidate_Dictionary candidateIDs[];
 	private YAV_Ballot currentBallot;
+	private ArrayList<HashMap<YAV_Ballot_Group, YAV_Ballot_Group>> groupIndex;
+	private YAV_Ballot_Group probe; // Reused to look up rankings in groupIndex without making a new group
+	private boolean indexStale; // Groups were added without groupIndex (see addDistinctGroups)
+	private YAV_Ballot_Trie[] tries; // Each election's groups as a preference tree, or null until it's asked for
+	private IRV_Tally[] firstPasses; // Each election's first pass, or null until it's asked for
+	private boolean trieCounting; // Whether the first passes are kept over the trees instead of the groups
 
 	/**
-	 * Creates an empty ballot box with the parameters indicated by the .cfg file
+	 * Creates an empty, uncompressed ballot box with the parameters indicated by the .cfg file
 	 * @param cfg Used to create arrays sized to how many elections, positions, and candidates there are
 	 */
 	public YAV_Ballot_Box(YAV_Config cfg) {
+		this(cfg, false);
+	}
+
+	/**
+	 * Creates an empty ballot box with the parameters indicated by the .cfg file
+	 * @param cfg Used to create arrays sized to how many elections, positions, and candidates there are
+	 * @param compressed If true, collapses identical rankings into weighted groups and doesn't keep the ballots
+	 */
+	public YAV_Ballot_Box(YAV_Config cfg, boolean compressed) {
+		this.compressed = compressed;
 		box = new HashSet<YAV_Ballot>();
+		numBallots = 0;
+		tsvPosition = 0;
 		numElections = cfg.numOfElections;
 		electionOrder = new String[numElections];
 		numPositions  = new int[numElections];
 		numCandidates = new int[numElections];
 		maxNumOfCandidates = 1;
 		candidateOrder = new String[numElections][0];
+		candidateIDs = new YAV_Candidate_Dictionary[numElections];
+		groups = new ArrayList<ArrayList<YAV_Ballot_Group>>();
+		groupIndex = new ArrayList<HashMap<YAV_Ballot_Group, YAV_Ballot_Group>>();
+		probe = new YAV_Ballot_Group(new short[0], 0);
+		tries = new YAV_Ballot_Trie[numElections];
+		firstPasses = new IRV_Tally[numElections];
 		for (int i = 0; i < numElections; i++) {
+			groups.add(new ArrayList<YAV_Ballot_Group>());
+			groupIndex.add(new HashMap<YAV_Ballot_Group, YAV_Ballot_Group>());
 			electionOrder[i] = cfg.elections.get(i);
 			numPositions[i] = cfg.positions.get(electionOrder[i]);
-			numCandidates[i] = cfg.candidates.get(electionOrder[i]).size();
-			if (maxNumOfCandidates < numCandidates[i]) maxNumOfCandidates = numCandidates[i];
-			candidateOrder[i] = new String[numCandidates[i]];
-			for (int j = 0; j < numCandidates[i]; j++) {
-				candidateOrder[i][j] = cfg.candidates.get(electionOrder[i]).get(j);
-			}
+			candidateIDs[i] = cfg.candidates.get(electionOrder[i]);
 		}
+		refreshCandidates();
 	}
 
 	/**
@@ -43,15 +79,17 @@ public class YAV_Ballot_Box {
 	 * 							  (i+1)-j correspond to each candidate ranking in the second election
 	 * 							  (j+1)-k correspond to each candidate ranking in the third election
 	 *  and transfers that information to a YAV_Ballot object before adding it to the ballot box
+	 * Names are stored as their IDs in each election's candidate dictionary; names that aren't in the
+	 *  dictionary (and blank entries) are stored as YAV_Ballot.NO_VOTE
 	 * @param tsvBallot Array of Strings read from the .tsv to represent a ballot
 	 */
 	public void add(String[] tsvBallot) {
-		currentBallot = new YAV_Ballot(numElections, maxNumOfCandidates);
+		currentBallot = new YAV_Ballot(numCandidates);
 		int k = 0;
 		for (int i = 0; i < numElections; i++) {
 			for (int j = 0; j < numCandidates[i]; j++) {
 				try {
-					currentBallot.setNN(i, j, tsvBallot[k + j]);
+					currentBallot.setNN(i, j, (short) candidateIDs[i].getID(tsvBallot[k + j]));
 				}
 				catch (ArrayIndexOutOfBoundsException e) {
 					// Do nothing, the ballot just didn't have a vote in the final column(s)
@@ -59,7 +97,179 @@ public class YAV_Ballot_Box {
 			}
 			k += numCandidates[i];
 		}
-		box.add(currentBallot);
+		add(currentBallot);
+	}
+
+	/**
+	 * Files an already-encoded ballot into each election's groups (and keeps it, unless compressed)
+	 * @param ballot Ballot whose rows hold candidate IDs from this box's candidate dictionaries
+	 */
+	public void add(YAV_Ballot ballot) {
+		if (compressed) {
+			add(ballot.candidateRanking);
+			return;
+		}
+		for (int i = 0; i < numElections; i++) {
+			groups.get(i).add(new YAV_Ballot_Group(ballot.getNth(i), 1));
+			addToCounts(i, ballot.getNth(i), true);
+		}
+		box.add(ballot);
+		numBallots++;
+	}
+
+	/**
+	 * Files a ballot given as one row of candidate IDs per election, which the caller may reuse for the next ballot
+	 * Compressed ballot boxes look the rows up in place and only copy a row when it's a new ranking, so depositing a
+	 *  ranking that's already been cast doesn't allocate anything
+	 * @param rankings Rows of candidate IDs from this box's candidate dictionaries, one per election
+	 */
+	public void add(short[][] rankings) {
+		if (!compressed) {
+			int[] rowLengths = new int[numElections];
+			for (int i = 0; i < numElections; i++) rowLengths[i] = rankings[i].length;
+			YAV_Ballot ballot = new YAV_Ballot(rowLengths);
+			for (int i = 0; i < numElections; i++) ballot.setNth(i, rankings[i]);
+			add(ballot);
+			return;
+		}
+		if (indexStale) rebuildIndex();
+		for (int i = 0; i < numElections; i++) {
+			probe.setRanking(rankings[i]);
+			YAV_Ballot_Group existing = groupIndex.get(i).get(probe);
+			if (existing != null) {
+				existing.count++;
+				addToCounts(i, existing.ranking, false);
+				continue;
+			}
+			YAV_Ballot_Group group = new YAV_Ballot_Group(rankings[i].clone(), 1);
+			groupIndex.get(i).put(group, group);
+			groups.get(i).add(group);
+			addToCounts(i, group.ranking, true);
+		}
+		numBallots++;
+	}
+
+	/**
+	 * Files groups whose rankings are already known to be distinct (eg. from a YAV_Snapshot of a compressed ballot
+	 *  box) straight into an election, without looking each one up; only for compressed ballot boxes, and doesn't
+	 *  change how many ballots have been cast
+	 * The lookup index is only rebuilt if more ballots are added afterwards (eg. appended from the .tsv)
+	 * @param electionNum Which election
+	 * @param distinctGroups Groups with rankings from this box's candidate dictionaries, none of them the same
+	 */
+	void addDistinctGroups(int electionNum, ArrayList<YAV_Ballot_Group> distinctGroups) {
+		groups.get(electionNum).addAll(distinctGroups);
+		tries[electionNum] = null;
+		firstPasses[electionNum] = null;
+		indexStale = true;
+	}
+
+	/**
+	 * Only one thread should ask for a given election's tree at a time (the analyses give each election one thread)
+	 * @param electionNum Which election
+	 * @return The election's ballot groups as a preference tree, built now if it hasn't been asked for yet
+	 */
+	public YAV_Ballot_Trie getTrie(int electionNum) {
+		if (tries[electionNum] == null) tries[electionNum] = new YAV_Ballot_Trie(groups.get(electionNum));
+		return tries[electionNum];
+	}
+
+	/**
+	 * Only one thread should ask for a given election's first pass at a time, and it should be copied before it's
+	 *  counted any further (see IRV_Tally(IRV_Tally)), since it's kept up to date as ballots are added
+	 * @param electionNum Which election
+	 * @return Tally of the election's first pass (over its tree if trie counting is on), with nobody excluded
+	 */
+	public IRV_Tally getFirstPass(int electionNum) {
+		if (firstPasses[electionNum] == null) {
+			boolean[] nobody = new boolean[numCandidates[electionNum]];
+			if (trieCounting) {
+				firstPasses[electionNum] = new IRV_Tally(getTrie(electionNum), numCandidates[electionNum], nobody);
+			}
+			else firstPasses[electionNum] = new IRV_Tally(this, electionNum, nobody);
+		}
+		return firstPasses[electionNum];
+	}
+
+	/**
+	 * Chooses what the elections' first passes are kept over (see IRV_Tally): the trees make each elimination pass
+	 *  cheaper, but building one takes many times the memory of the groups' first pass, so it's off by default
+	 * @param trieCounting If true, IRV counts eliminate candidates through each election's YAV_Ballot_Trie
+	 */
+	public void setTrieCounting(boolean trieCounting) {
+		if (this.trieCounting == trieCounting) return;
+		this.trieCounting = trieCounting;
+		for (int i = 0; i < numElections; i++) firstPasses[i] = null;
+	}
+
+	/**
+	 * Adds a ballot to the election's tree and first pass, if they've been built
+	 * @param electionNum Which election
+	 * @param ranking Candidate IDs the ballot ranked, in order
+	 * @param newGroup Whether the ballot started a new group (already appended to the election's groups)
+	 */
+	private void addToCounts(int electionNum, short[] ranking, boolean newGroup) {
+		IRV_Tally firstPass = firstPasses[electionNum];
+		// The latest group is the ballot's own if it started one (and otherwise its ranking's already in the tree)
+		int group = groups.get(electionNum).size() - 1;
+		if (trieCounting && firstPass != null) {
+			firstPass.add(ranking, 1, group); // Adds it to the tree, too
+			return;
+		}
+		if (tries[electionNum] != null) tries[electionNum].add(ranking, 1, group);
+		if (firstPass == null) return;
+		if (newGroup) firstPass.addGroups();
+		else firstPass.add(ranking, 1, group);
+	}
+
+	private void rebuildIndex() {
+		for (int i = 0; i < numElections; i++) {
+			groupIndex.get(i).clear();
+			for (YAV_Ballot_Group g : groups.get(i)) groupIndex.get(i).put(g, g);
+		}
+		indexStale = false;
+	}
+
+	/**
+	 * Catches the ballot box up with candidates added to the elections' dictionaries since it was created
+	 *  (eg. by YAV_TSV_Reader.load(), which finds the candidates as it deposits the ballots)
+	 * Candidates are only ever added to a dictionary, so existing candidate IDs (and ballots) stay valid
+	 */
+	public void refreshCandidates() {
+		for (int i = 0; i < numElections; i++) {
+			numCandidates[i] = candidateIDs[i].size();
+			if (maxNumOfCandidates < numCandidates[i]) maxNumOfCandidates = numCandidates[i];
+			candidateOrder[i] = new String[numCandidates[i]];
+			for (int j = 0; j < numCandidates[i]; j++) {
+				candidateOrder[i][j] = candidateIDs[i].get(j);
+			}
+		}
+	}
+
+	/**
+	 * @return How many ballots have been cast (including ones collapsed into a group)
+	 */
+	public int size() {
+		return numBallots;
+	}
+
+	/**
+	 * @param electionNum Which election
+	 * @param candidate Name of the candidate
+	 * @return The candidate's ID in that election, or YAV_Ballot.NO_VOTE if they aren't running in it
+	 */
+	public int getCandidateID(int electionNum, String candidate) {
+		return candidateIDs[electionNum].getID(candidate);
+	}
+
+	/**
+	 * @param electionNum Which election
+	 * @param id ID of the candidate (as stored on a YAV_Ballot)
+	 * @return The candidate's name, or "" for YAV_Ballot.NO_VOTE
+	 */
+	public String getCandidateName(int electionNum, int id) {
+		if (id == YAV_Ballot.NO_VOTE) return "";
+		return candidateOrder[electionNum][id];
 	}
 
 	/**
@@ -67,6 +277,14 @@ public class YAV_Ballot_Box {
 	 */
 	public void clear() {
 		box.clear();
+		for (int i = 0; i < numElections; i++) {
+			groups.get(i).clear();
+			groupIndex.get(i).clear();
+			tries[i] = null;
+			firstPasses[i] = null;
+		}
+		indexStale = false;
+		numBallots = 0;
 	}
 
 	/**
@@ -77,15 +295,38 @@ public class YAV_Ballot_Box {
 		for (YAV_Ballot b : box) {
 			returner.append(b + System.getProperty("line.separator"));
 		}
+		if (compressed) {
+			for (int i = 0; i < numElections; i++) {
+				for (YAV_Ballot_Group g : groups.get(i)) {
+					returner.append(i + ": " + g + System.getProperty("line.separator"));
+				}
+			}
+		}
 		if (returner.length() > 1) returner.setLength(returner.length() - 1);
 		return returner.toString();
 	}
 	
 	/**
 	 * Returns all relevant info in a human-readable String
+	 * Compressed ballot boxes list each election's distinct rankings with how many ballots cast them instead
 	 */
 	public String toReadableString() {
 		StringBuilder returner = new StringBuilder();
+		if (compressed) {
+			for (int i = 0; i < numElections; i++) {
+				returner.append(electionOrder[i] + ":" + System.getProperty("line.separator"));
+				for (YAV_Ballot_Group g : groups.get(i)) {
+					returner.append("    " + g.count + "x ");
+					for (int j = 0; j < g.ranking.length; j++) {
+						returner.append(getCandidateName(i, g.ranking[j]));
+						if (j < g.ranking.length - 1) returner.append(", ");
+					}
+					returner.append(System.getProperty("line.separator"));
+				}
+			}
+			if (returner.length() > 1) returner.setLength(returner.length() - 1);
+			return returner.toString();
+		}
 		returner.append("Ballots will not necessarily be ordered the same way they were entered."
 						+ System.getProperty("line.separator"));
 		int count = 0;
@@ -99,7 +340,7 @@ public class YAV_Ballot_Box {
 			for (int i = 0; i < numElections; i++) {
 				returner.append(num + "-" + i + ": ");
 				for (int j = 0; j < numCandidates[i]; j++) {
-					returner.append(b.getNN(i, j));
+					returner.append(getCandidateName(i, b.getNN(i, j)));
 					if (j < numCandidates[i] - 1) returner.append(", ");
 					else returner.append(System.getProperty("line.separator"));
 				}
@@ -0,0 +1,102 @@
+package YAV_Election_Analyzer;
+
+import java.util.Arrays;
+
+/**
+ * A class for keeping track of one distinct ranking in a single election, and how many ballots cast it.
+ * The analyzers tally these weighted groups rather than individual ballots, so with YAV_Ballot_Box's
+ *  compressed mode each pass costs as much as there are distinct rankings rather than voters.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_Ballot_Group {
+	/**
+	 * Candidate IDs in ranking order, exactly as in a YAV_Ballot row (NO_VOTE is no vote)
+	 * Must not be changed once the group is in a ballot box, since the box looks groups up by their ranking
+	 */
+	protected short[] ranking;
+	protected int count;
+	private int hash;
+	// Candidate ID to its position in the ranking (-1 if unranked), indexed the first time getRank() is called (only
+	//  ties are broken by rank, so most groups never need it)
+	private volatile short[] ranks;
+
+	/**
+	 * @param ranking Row of candidate IDs from a YAV_Ballot
+	 * @param count How many ballots cast this ranking
+	 */
+	public YAV_Ballot_Group(short[] ranking, int count) {
+		this.ranking = ranking;
+		this.count = count;
+		hash = Arrays.hashCode(ranking);
+	}
+
+	/**
+	 * Builds the inverse of the ranking, so getRank() is one array read instead of a scan of the ranking
+	 * If a candidate is ranked more than once, their last position counts (the same as scanning the whole ranking)
+	 * @return Each candidate ID's position in the ranking
+	 */
+	private short[] indexRanks() {
+		int maxID = -1;
+		for (short c : ranking) {
+			if (c > maxID) maxID = c;
+		}
+		short[] index = new short[maxID + 1];
+		Arrays.fill(index, (short) -1);
+		for (int i = 0; i < ranking.length; i++) {
+			if (ranking[i] != YAV_Ballot.NO_VOTE) index[ranking[i]] = (short) i;
+		}
+		return index;
+	}
+
+	/**
+	 * @param candidate ID of a candidate
+	 * @return Position of the candidate in the ranking (0 being first choice), or -1 if they aren't ranked
+	 */
+	public int getRank(int candidate) {
+		short[] index = ranks;
+		if (index == null) ranks = index = indexRanks(); // Two threads may both build it, but they build the same one
+		return candidate >= 0 && candidate < index.length ? index[candidate] : -1;
+	}
+
+	/**
+	 * Points a probe group (one that's never put in a ballot box) at another ranking, to look that ranking up
+	 * The probe's ranks are dropped, and only indexed again if getRank() is called on the new ranking
+	 * @param ranking Row of candidate IDs
+	 */
+	void setRanking(short[] ranking) {
+		this.ranking = ranking;
+		hash = Arrays.hashCode(ranking);
+		ranks = null;
+	}
+
+	public short[] getRanking() {
+		return ranking;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Groups are equal if they hold the same ranking, regardless of their counts
+	 */
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof YAV_Ballot_Group)) return false;
+		YAV_Ballot_Group g = (YAV_Ballot_Group) o;
+		return hash == g.hash && Arrays.equals(ranking, g.ranking);
+	}
+
+	public int hashCode() {
+		return hash;
+	}
+
+	/**
+	 * Returns the count and the ranking (as candidate IDs) in a debug-friendly String
+	 */
+	public String toString() {
+		return count + "x " + Arrays.toString(ranking);
+	}
+}
@@ -0,0 +1,223 @@
+package YAV_Election_Analyzer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * One election's rankings stored as a preference tree: each node is a candidate (or a blank entry) following its
+ *  parent's, and counts every ballot whose ranking starts with the path from the root to it.
+ * Ballots that share their first few preferences share those nodes, so when a candidate is eliminated, a count can
+ *  move a whole node (every ballot under it) on to its children's candidates at once instead of moving each ballot
+ *  group (see IRV_Tally and STV_Analysis). Real electorates' preferences cluster heavily, so an elimination touches
+ *  far fewer nodes than there are ballot groups.
+ * Nodes are kept in flat arrays (the root is node 0) instead of as objects, and blank entries at the end of a
+ *  ranking are dropped, since they never change where a ballot goes.
+ * Building the tree is the only step of a count that touches every ballot group; with enough groups, it's split into
+ *  shards whose trees are built in parallel and then merged (which only touches the shards' nodes).
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_Ballot_Trie {
+	public static final int ROOT = 0, NONE = -1;
+	/**
+	 * Fewest ballot groups for the tree to be built in parallel (below this the fork/join overhead isn't worth it)
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 16;
+	/**
+	 * Fewest ballot groups in one shard of a parallel build
+	 */
+	private static final int MIN_SHARD_SIZE = 1 << 13;
+
+	/**
+	 * candidate[n] = candidate ID of node n (YAV_Ballot.NO_VOTE for a blank entry, and for the root)
+	 * count[n] = ballots whose ranking passes through node n (for the root, every ballot)
+	 * firstChild[n] = first of node n's children, nextSibling[n] = the child after n with the same parent
+	 * firstGroup[n] = index of the earliest ballot group whose ranking passes through node n
+	 */
+	protected short[] candidate;
+	protected int[] count, firstChild, nextSibling, firstGroup;
+	protected int size;
+
+	/**
+	 * Builds the tree of an election's ballot groups (in parallel, on the current ForkJoinPool or the common one, if
+	 *  there are at least PARALLEL_THRESHOLD groups)
+	 * @param groups One election's ballot groups (see YAV_Ballot_Box)
+	 */
+	public YAV_Ballot_Trie(List<YAV_Ballot_Group> groups) {
+		if (groups.size() >= PARALLEL_THRESHOLD) {
+			int shardSize = Math.max(MIN_SHARD_SIZE, groups.size() / (4 * Runtime.getRuntime().availableProcessors()));
+			YAV_Ballot_Trie built = new Shard(groups, 0, groups.size(), shardSize).invoke();
+			candidate = built.candidate;
+			count = built.count;
+			firstChild = built.firstChild;
+			nextSibling = built.nextSibling;
+			firstGroup = built.firstGroup;
+			size = built.size;
+			return;
+		}
+		allocate(Math.max(16, groups.size() * 2));
+		for (int g = 0; g < groups.size(); g++) add(groups.get(g).ranking, groups.get(g).count, g);
+	}
+
+	/**
+	 * Makes an empty tree (just the root)
+	 * @param capacity How many nodes to make room for up front
+	 */
+	private YAV_Ballot_Trie(int capacity) {
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		candidate = new short[capacity];
+		count = new int[capacity];
+		firstChild = new int[capacity];
+		nextSibling = new int[capacity];
+		firstGroup = new int[capacity];
+		size = 0;
+		newNode(YAV_Ballot.NO_VOTE, 0);
+	}
+
+	/**
+	 * Adds ballots to the tree
+	 * @param ranking Candidate IDs the ballots ranked, in order
+	 * @param ballots How many ballots cast the ranking
+	 * @param group Index of the ballots' group in the election (only recorded on nodes the ranking adds to the tree,
+	 *  so ballots added to a group that's already in it can pass any index)
+	 */
+	public void add(short[] ranking, int ballots, int group) {
+		int length = ranking.length;
+		while (length > 0 && ranking[length - 1] == YAV_Ballot.NO_VOTE) length--;
+		int node = ROOT;
+		count[ROOT] += ballots;
+		for (int j = 0; j < length; j++) {
+			int child = firstChild[node];
+			while (child != NONE && candidate[child] != ranking[j]) child = nextSibling[child];
+			if (child == NONE) {
+				child = newNode(ranking[j], group);
+				nextSibling[child] = firstChild[node];
+				firstChild[node] = child;
+			}
+			count[child] += ballots;
+			node = child;
+		}
+	}
+
+	/**
+	 * Adds every ballot in another tree to this one, matching up the nodes they share
+	 * @param other Tree to add (left unchanged)
+	 */
+	private void addAll(YAV_Ballot_Trie other) {
+		count[ROOT] += other.count[ROOT];
+		addChildren(ROOT, other, ROOT);
+	}
+
+	/**
+	 * Adds the other tree's children of otherNode (and everything under them) under node
+	 */
+	private void addChildren(int node, YAV_Ballot_Trie other, int otherNode) {
+		for (int o = other.firstChild[otherNode]; o != NONE; o = other.nextSibling[o]) {
+			int child = firstChild[node];
+			while (child != NONE && candidate[child] != other.candidate[o]) child = nextSibling[child];
+			if (child == NONE) {
+				child = newNode(other.candidate[o], other.firstGroup[o]);
+				nextSibling[child] = firstChild[node];
+				firstChild[node] = child;
+			}
+			else firstGroup[child] = Math.min(firstGroup[child], other.firstGroup[o]);
+			count[child] += other.count[o];
+			addChildren(child, other, o);
+		}
+	}
+
+	/**
+	 * Builds the tree for a range of ballot groups, splitting it in half until it's no bigger than shardSize and
+	 *  merging the halves' trees
+	 */
+	private static class Shard extends RecursiveTask<YAV_Ballot_Trie> {
+		private static final long serialVersionUID = 4455385017924811342L; // Just shutting up Java warnings
+		private final List<YAV_Ballot_Group> groups;
+		private final int from, to, shardSize;
+
+		Shard(List<YAV_Ballot_Group> groups, int from, int to, int shardSize) {
+			this.groups = groups;
+			this.from = from;
+			this.to = to;
+			this.shardSize = shardSize;
+		}
+
+		protected YAV_Ballot_Trie compute() {
+			if (to - from > shardSize) {
+				Shard left = new Shard(groups, from, (from + to) >>> 1, shardSize);
+				Shard right = new Shard(groups, (from + to) >>> 1, to, shardSize);
+				right.fork();
+				YAV_Ballot_Trie trie = left.compute();
+				trie.addAll(right.join());
+				return trie;
+			}
+			YAV_Ballot_Trie trie = new YAV_Ballot_Trie(Math.max(16, (to - from) * 2));
+			for (int g = from; g < to; g++) trie.add(groups.get(g).ranking, groups.get(g).count, g);
+			return trie;
+		}
+	}
+
+	private int newNode(short c, int group) {
+		if (size == candidate.length) {
+			int capacity = size + (size >> 1);
+			candidate = Arrays.copyOf(candidate, capacity);
+			count = Arrays.copyOf(count, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			nextSibling = Arrays.copyOf(nextSibling, capacity);
+			firstGroup = Arrays.copyOf(firstGroup, capacity);
+		}
+		candidate[size] = c;
+		count[size] = 0;
+		firstGroup[size] = group;
+		firstChild[size] = NONE;
+		nextSibling[size] = NONE;
+		return size++;
+	}
+
+	/**
+	 * @return How many nodes the tree has (including the root)
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return Candidate ID of the node, or YAV_Ballot.NO_VOTE for a blank entry or the root
+	 */
+	public short getCandidate(int node) {
+		return candidate[node];
+	}
+
+	/**
+	 * @return How many ballots' rankings pass through the node
+	 */
+	public int getCount(int node) {
+		return count[node];
+	}
+
+	/**
+	 * @return Index of the earliest ballot group whose ranking passes through the node
+	 */
+	public int getFirstGroup(int node) {
+		return firstGroup[node];
+	}
+
+	/**
+	 * @return The node's first child, or NONE
+	 */
+	public int getFirstChild(int node) {
+		return firstChild[node];
+	}
+
+	/**
+	 * @return The next child of the node's parent, or NONE
+	 */
+	public int getNextSibling(int node) {
+		return nextSibling[node];
+	}
+}
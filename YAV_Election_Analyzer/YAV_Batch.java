@@ -0,0 +1,206 @@
+package YAV_Election_Analyzer;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless, command-line way of running the analysis (no Swing at all), for scripted counts on machines without a
+ *  display. Reads the .tsv with YAV_TSV_Reader (or a snapshot with YAV_Snapshot) and runs IRV_Analysis (or another
+ *  YAV_Analyzer) on it, printing the same report as the GUI to buffered stdout or a file. See usage() for the arguments and exit codes.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_Batch {
+	public static final int EXIT_OK = 0, EXIT_USAGE = 1, EXIT_INVALID_TSV = 2, EXIT_OUTPUT_ERROR = 3;
+
+	/**
+	 * Runs the analysis described by the command-line arguments
+	 * @param args Command-line arguments (see usage())
+	 * @return Exit code for the program
+	 */
+	public static int run(String[] args) {
+		int ballotStartColumn = 6;
+		YAV_Analyzer.Kind kind = YAV_Analyzer.Kind.IRV;
+		boolean batchElimination = false, trieCounting = false;
+		File tsv = null, output = null, snapshot = null, export = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-c") || args[i].equals("--column")) {
+					ballotStartColumn = parseColumn(args[++i]);
+				}
+				else if (args[i].equals("-a") || args[i].equals("--analyzer")) {
+					kind = parseKind(args[++i]);
+				}
+				else if (args[i].equals("-b") || args[i].equals("--batch-eliminate")) {
+					batchElimination = true;
+				}
+				else if (args[i].equals("-t") || args[i].equals("--trie")) {
+					trieCounting = true;
+				}
+				else if (args[i].equals("-o") || args[i].equals("--output")) {
+					output = new File(args[++i]);
+				}
+				else if (args[i].equals("-s") || args[i].equals("--snapshot")) {
+					snapshot = new File(args[++i]);
+				}
+				else if (args[i].equals("-e") || args[i].equals("--export")) {
+					export = new File(args[++i]);
+				}
+				else if (args[i].equals("-h") || args[i].equals("--help")) {
+					usage(System.out);
+					return EXIT_OK;
+				}
+				else if (args[i].startsWith("-") || tsv != null) {
+					return usageError("Unexpected argument \"" + args[i] + "\".");
+				}
+				else {
+					tsv = new File(args[i]);
+				}
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException e) {
+			return usageError("Missing the value after \"" + args[args.length - 1] + "\".");
+		}
+		catch (IllegalArgumentException e) {
+			return usageError(e.getMessage());
+		}
+		if (tsv == null) return usageError("No .tsv file given.");
+		if (batchElimination && kind != YAV_Analyzer.Kind.IRV) {
+			return usageError("Only irv can eliminate candidates in batches (-b).");
+		}
+
+		PrintStream out;
+		try {
+			if (output == null) out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out),
+																				 1 << 16), false);
+			else out = new PrintStream(new BufferedOutputStream(new FileOutputStream(output), 1 << 16), false);
+		}
+		catch (FileNotFoundException e) {
+			System.err.println("Error: Could not write to \"" + output + "\".");
+			return EXIT_OUTPUT_ERROR;
+		}
+		PrintStream stdout = System.out;
+		System.setOut(out);
+		try {
+			YAV_Ballot_Box ybb;
+			if (YAV_Snapshot.isSnapshot(tsv)) ybb = YAV_Snapshot.load(tsv, new YAV_Config());
+			else ybb = YAV_TSV_Reader.load(tsv, new YAV_Config(), ballotStartColumn, true);
+			if (ybb == null) return EXIT_INVALID_TSV;
+			ybb.setTrieCounting(trieCounting);
+			if (snapshot != null && !YAV_Snapshot.save(ybb, snapshot)) return EXIT_OUTPUT_ERROR;
+			if (export == null) {
+				new IRV_Report(out).print(analyze(ybb, kind, batchElimination, null).getResult());
+			}
+			else if (!analyzeAndExport(ybb, kind, batchElimination, out, export)) return EXIT_OUTPUT_ERROR;
+		}
+		finally {
+			out.flush();
+			System.setOut(stdout);
+			if (output != null) out.close();
+		}
+		if (out.checkError()) {
+			System.err.println("Error: Could not write the results.");
+			return EXIT_OUTPUT_ERROR;
+		}
+		return EXIT_OK;
+	}
+
+	/**
+	 * Runs the analysis, exporting each round as soon as it's counted, then prints the report
+	 * @return False if the export couldn't be written
+	 */
+	private static boolean analyzeAndExport(YAV_Ballot_Box ybb, YAV_Analyzer.Kind kind, boolean batchElimination,
+											PrintStream out, File export) {
+		IRV_Export exporter;
+		try {
+			exporter = new IRV_Export(export);
+		}
+		catch (IOException e) {
+			System.err.println("Error: Could not write to \"" + export + "\".");
+			return false;
+		}
+		IRV_Export.Streamer streamer = new IRV_Export.Streamer(exporter, ybb.electionOrder);
+		IOException failure = null;
+		try {
+			YAV_Analyzer analyzer = analyze(ybb, kind, batchElimination, streamer);
+			failure = streamer.getFailure();
+			if (failure == null) new IRV_Report(out).print(analyzer.getResult());
+		}
+		finally {
+			try {
+				exporter.close();
+			}
+			catch (IOException e) {
+				if (failure == null) failure = e;
+			}
+		}
+		if (failure != null) {
+			System.err.println("Error: Could not write the results to \"" + export + "\" (" + failure.getMessage() + ").");
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Runs the analysis on the common ForkJoinPool
+	 * @param batchElimination Whether IRV may eliminate several candidates in one pass (see IRV_Analysis)
+	 */
+	private static YAV_Analyzer analyze(YAV_Ballot_Box ybb, YAV_Analyzer.Kind kind, boolean batchElimination,
+										YAV_Progress progress) {
+		return kind.analyze(ybb, ForkJoinPool.commonPool(), progress, batchElimination);
+	}
+
+	/**
+	 * @param column Column letter (eg. "F") or 1-indexed column number (eg. "6")
+	 * @return 1-indexed column number
+	 */
+	private static int parseColumn(String column) {
+		if (column.matches("[A-Za-z]")) return Character.toUpperCase(column.charAt(0)) - 'A' + 1;
+		try {
+			int col = Integer.parseInt(column);
+			if (col >= 1) return col;
+		}
+		catch (NumberFormatException e) {
+			// Falls through to the error below
+		}
+		throw new IllegalArgumentException("\"" + column + "\" is not a column letter or a column number.");
+	}
+
+	/**
+	 * @param kind Name of an analyzer (eg. "irv" or "stv")
+	 * @return The analyzer by that name
+	 */
+	private static YAV_Analyzer.Kind parseKind(String kind) {
+		for (YAV_Analyzer.Kind k : YAV_Analyzer.Kind.values()) {
+			if (k.name().equalsIgnoreCase(kind)) return k;
+		}
+		throw new IllegalArgumentException("\"" + kind + "\" is not an analyzer (use irv or stv).");
+	}
+
+	private static int usageError(String error) {
+		System.err.println("Error: " + error);
+		usage(System.err);
+		return EXIT_USAGE;
+	}
+
+	private static void usage(PrintStream out) {
+		out.println("Usage: java YAV_Election_Analyzer.YAV_Main [options] <file.tsv or snapshot.yavs>");
+		out.println("  -c, --column <col>     Column where vote data begins, as a letter or number (default F)");
+		out.println("  -a, --analyzer <name>  Count by irv (Instant Runoff, the default) or stv (Single Transferable Vote)");
+		out.println("  -b, --batch-eliminate  With irv, eliminate the bottom candidates together when none could survive");
+		out.println("  -t, --trie             With irv, count over a preference tree (faster passes, more memory)");
+		out.println("  -o, --output <file>    Write the results to a file instead of stdout");
+		out.println("  -s, --snapshot <file>  Also save the ballots as a snapshot, which loads faster than the .tsv");
+		out.println("  -e, --export <file>    Also export the rounds and winners to a .csv or .json file");
+		out.println("  -h, --help             Show this message");
+		out.println("Exit codes: " + EXIT_OK + " = counted, " + EXIT_USAGE + " = bad arguments, " + EXIT_INVALID_TSV +
+					" = .tsv could not be read or validated, " + EXIT_OUTPUT_ERROR + " = results could not be written");
+	}
+}
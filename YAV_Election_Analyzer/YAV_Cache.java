@@ -0,0 +1,388 @@
+package YAV_Election_Analyzer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * An on-disk cache of loaded .tsv files and their results, so reopening the same .tsv (or the same .tsv with more
+ *  responses appended to it, as happens all through a conference) doesn't mean reading and counting it all again.
+ * Entries are addressed by content: an entry remembers the SHA-256 of the bytes of the .tsv it read (final row and
+ *  all), the ballot start column, and for results, the analysis options (eg. "IRV"). Each entry is a YAV_Snapshot of
+ *  the ballot box, plus one serialized IRV_Result per set of options it's been counted with, all named after the
+ *  cache's VERSION, hash, length, column, and options, so the directory is the index.
+ * Looking a .tsv up reads it once, hashing it; the hash of every cached length is checked along the way, so a .tsv
+ *  that's grown since it was cached matches its earlier entry, and only the rows after it need to be read (with the
+ *  same final-row rules as YAV_TSV_Reader.load(), so a row that's been written to since it was cached means a full
+ *  load). Only an entry that covers all of the .tsv is a full hit, with results that are up to date.
+ * The directory is kept under maxBytes by deleting the least recently used entries (each hit touches its files), and
+ *  only its owner can read it, since the ballots in it are as private as the .tsv they came from.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_Cache {
+	public static final long DEFAULT_MAX_BYTES = 256L << 20;
+	// Bump whenever IRV_Result, YAV_Snapshot's format, or how an election is counted changes, so entries cached by an
+	//  older version are never used (they're left for evict() to delete)
+	public static final int VERSION = 3;
+	private static final String VERSION_PREFIX = "v" + VERSION + "-";
+	private static final String RESULT_EXTENSION = ".result";
+
+	private final File directory;
+	private final long maxBytes;
+
+	/**
+	 * @param directory Where the cache is kept (created if it doesn't exist)
+	 * @param maxBytes How big the cache can get before the least recently used entries are deleted
+	 */
+	public YAV_Cache(File directory, long maxBytes) {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * A cache in the user's own cache directory (see defaultDirectory()), limited to DEFAULT_MAX_BYTES
+	 */
+	public YAV_Cache() {
+		this(defaultDirectory(), DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * @return "YAV Election Analyzer" in the user's local application data on Windows, ~/Library/Caches on macOS,
+	 *  and $XDG_CACHE_HOME (or ~/.cache) anywhere else
+	 */
+	public static File defaultDirectory() {
+		String os = System.getProperty("os.name", "").toLowerCase();
+		File home = new File(System.getProperty("user.home"));
+		File parent;
+		if (os.startsWith("windows")) {
+			String appData = System.getenv("LOCALAPPDATA");
+			parent = appData != null ? new File(appData) : new File(home, "AppData" + File.separator + "Local");
+		}
+		else if (os.startsWith("mac")) parent = new File(home, "Library" + File.separator + "Caches");
+		else {
+			String xdg = System.getenv("XDG_CACHE_HOME");
+			parent = xdg != null && new File(xdg).isAbsolute() ? new File(xdg) : new File(home, ".cache");
+		}
+		return new File(parent, "YAV Election Analyzer");
+	}
+
+	/**
+	 * A cached ballot box (and maybe its results) for all or the first part of a .tsv
+	 */
+	public static final class Entry {
+		private final File snapshot, result;
+		private final long length;
+
+		private Entry(File snapshot, File result, long length) {
+			this.snapshot = snapshot;
+			this.result = result;
+			this.length = length;
+		}
+
+		/**
+		 * @return How many bytes at the start of the .tsv the entry covers
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * @return Whether the entry has results for the options it was looked up with
+		 */
+		public boolean hasResult() {
+			return result != null;
+		}
+
+		/**
+		 * @param ybb Ballot box loaded from the entry (see YAV_Cache.load())
+		 * @param tsv Tab-Separated Value file the entry was found for
+		 * @return Whether the entry covers all of the .tsv, so its results (if it has any) are up to date
+		 */
+		public boolean covers(YAV_Ballot_Box ybb, File tsv) {
+			return ybb.tsvPosition == length && length == tsv.length();
+		}
+	}
+
+	/**
+	 * The results of a cache hit, standing in for the analysis they came from (eg. for YAV_TSV_Watcher)
+	 */
+	public static final class Cached implements YAV_Analyzer {
+		private final IRV_Result result;
+		private final Kind kind;
+
+		public Cached(IRV_Result result, Kind kind) {
+			this.result = result;
+			this.kind = kind;
+		}
+
+		public IRV_Result getResult() {
+			return result;
+		}
+
+		public Kind getKind() {
+			return kind;
+		}
+
+		public boolean isBatchElimination() {
+			return false; // Results are only cached by their kind, so they're never counted with batch elimination
+		}
+	}
+
+	/**
+	 * Finds the entry covering the most of the .tsv (all of it, if it hasn't changed since it was cached)
+	 * @param tsv Tab-Separated Value file
+	 * @param ballotStartColumn Where vote data begins in the .tsv
+	 * @param options Analysis options the results were counted with (eg. "IRV")
+	 * @return The best entry, or null if nothing cached matches the start of the .tsv
+	 */
+	public Entry find(File tsv, int ballotStartColumn, String options) {
+		File[] snapshots = directory.listFiles();
+		if (snapshots == null) return null;
+		String columnSuffix = "-c" + ballotStartColumn + YAV_Snapshot.EXTENSION;
+		ArrayList<File> candidates = new ArrayList<File>();
+		final long tsvLength = tsv.length();
+		for (File f : snapshots) {
+			if (!f.getName().endsWith(columnSuffix)) continue;
+			long length = lengthOf(f);
+			if (length > 0 && length <= tsvLength) candidates.add(f);
+		}
+		if (candidates.isEmpty()) return null;
+		Collections.sort(candidates, new Comparator<File>() {
+			public int compare(File a, File b) {
+				return Long.compare(lengthOf(a), lengthOf(b));
+			}
+		});
+		File best = null;
+		try (InputStream in = new BufferedInputStream(new FileInputStream(tsv), 1 << 16)) {
+			MessageDigest digest = newDigest();
+			byte[] buffer = new byte[1 << 16];
+			long read = 0;
+			for (File f : candidates) {
+				long length = lengthOf(f);
+				while (read < length) {
+					int n = in.read(buffer, 0, (int) Math.min(buffer.length, length - read));
+					if (n < 0) break;
+					digest.update(buffer, 0, n);
+					read += n;
+				}
+				if (read < length) break;
+				MessageDigest prefix = (MessageDigest) digest.clone();
+				if (f.getName().startsWith(VERSION_PREFIX + hex(prefix.digest()) + "-")) best = f;
+			}
+		}
+		catch (IOException | CloneNotSupportedException e) {
+			return null;
+		}
+		if (best == null) return null;
+		String name = best.getName();
+		File result = new File(directory, name.substring(0, name.length() - YAV_Snapshot.EXTENSION.length()) + "-" +
+							   options + RESULT_EXTENSION);
+		long now = System.currentTimeMillis();
+		best.setLastModified(now);
+		if (result.isFile()) result.setLastModified(now);
+		return new Entry(best, result.isFile() ? result : null, lengthOf(best));
+	}
+
+	/**
+	 * Loads an entry's ballot box, then reads any rows appended to the .tsv after it (see YAV_TSV_Reader.append)
+	 * If rows were appended, the ballot box's tsvPosition is past the entry's length (and its results are out of date,
+	 *  see Entry.covers())
+	 * @param entry Entry found for the .tsv
+	 * @param tsv Tab-Separated Value file the entry was found for
+	 * @param config Filled with the elections and candidates, like YAV_TSV_Reader.load() does
+	 * @param ballotStartColumn Where vote data begins in the .tsv
+	 * @return The ballot box, or null if the entry couldn't be read, or its last row has been written to since (so the
+	 *  .tsv has to be loaded again)
+	 */
+	public YAV_Ballot_Box load(Entry entry, File tsv, YAV_Config config, int ballotStartColumn) {
+		YAV_Ballot_Box ybb = YAV_Snapshot.load(entry.snapshot, config);
+		if (ybb == null) {
+			entry.snapshot.delete();
+			return null;
+		}
+		if (tsv.length() > ybb.tsvPosition && YAV_TSV_Reader.append(tsv, ybb, ballotStartColumn) < 0) return null;
+		return ybb;
+	}
+
+	/**
+	 * @param entry Entry found for the .tsv
+	 * @return The entry's results for the options it was found with, or null if it has none (or they can't be read)
+	 */
+	public IRV_Result loadResult(Entry entry) {
+		if (entry.result == null) return null;
+		try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(entry.result)))) {
+			return (IRV_Result) in.readObject();
+		}
+		catch (IOException | ClassNotFoundException | ClassCastException e) {
+			entry.result.delete(); // Unreadable (eg. left by an older version), so it's counted again
+			return null;
+		}
+	}
+
+	/**
+	 * Caches a loaded ballot box and its results, then trims the cache to its size limit
+	 * @param tsv Tab-Separated Value file the ballot box was loaded from
+	 * @param ybb Ballot box loaded from the .tsv (its tsvPosition is how much of the .tsv it covers)
+	 * @param ballotStartColumn Where vote data begins in the .tsv
+	 * @param options Analysis options the results were counted with (eg. "IRV")
+	 * @param result Finished results (or null to only cache the ballot box)
+	 */
+	public void store(File tsv, YAV_Ballot_Box ybb, int ballotStartColumn, String options, IRV_Result result) {
+		if (ybb.tsvPosition <= 0 || !makeDirectory()) return;
+		String name;
+		try {
+			name = VERSION_PREFIX + hashPrefix(tsv, ybb.tsvPosition) + "-" + ybb.tsvPosition + "-c" + ballotStartColumn;
+		}
+		catch (IOException e) {
+			return; // The .tsv changed under us, so there's nothing consistent to cache
+		}
+		File snapshot = new File(directory, name + YAV_Snapshot.EXTENSION);
+		if (!snapshot.isFile() && !YAV_Snapshot.save(ybb, snapshot)) {
+			snapshot.delete();
+			return;
+		}
+		snapshot.setLastModified(System.currentTimeMillis());
+		if (result != null) {
+			File resultFile = new File(directory, name + "-" + options + RESULT_EXTENSION);
+			try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+					new FileOutputStream(resultFile)))) {
+				out.writeObject(result);
+			}
+			catch (IOException e) {
+				resultFile.delete();
+			}
+		}
+		evict();
+	}
+
+	/**
+	 * Creates the directory if it isn't there yet, and makes sure only its owner can read, write, or list it
+	 * @return False if the directory couldn't be created or kept private (so nothing is cached)
+	 */
+	private boolean makeDirectory() {
+		try {
+			Path path = directory.toPath();
+			if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+				Set<PosixFilePermission> ownerOnly = PosixFilePermissions.fromString("rwx------");
+				if (!Files.isDirectory(path)) {
+					Files.createDirectories(path, PosixFilePermissions.asFileAttribute(ownerOnly));
+				}
+				Files.setPosixFilePermissions(path, ownerOnly);
+				return true;
+			}
+			Files.createDirectories(path); // Eg. Windows, where the user's application data is already their own
+			return directory.setReadable(false, false) && directory.setReadable(true, true) &&
+				   directory.setWritable(false, false) && directory.setWritable(true, true) &&
+				   directory.setExecutable(false, false) && directory.setExecutable(true, true);
+		}
+		catch (IOException | UnsupportedOperationException | SecurityException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Deletes the least recently used entries until the cache fits in maxBytes (an entry's results go with it)
+	 */
+	private void evict() {
+		File[] files = directory.listFiles();
+		if (files == null) return;
+		long total = 0;
+		for (File f : files) total += f.length();
+		if (total <= maxBytes) return;
+		final long[] lastUsed = new long[files.length];
+		ArrayList<Integer> order = new ArrayList<Integer>();
+		for (int i = 0; i < files.length; i++) {
+			lastUsed[i] = files[i].lastModified();
+			order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Long.compare(lastUsed[a], lastUsed[b]);
+			}
+		});
+		for (int i : order) {
+			if (total <= maxBytes) return;
+			String name = files[i].getName();
+			if (!name.endsWith(YAV_Snapshot.EXTENSION) || !files[i].exists()) continue;
+			String stem = name.substring(0, name.length() - YAV_Snapshot.EXTENSION.length());
+			for (File f : files) {
+				String other = f.getName();
+				if ((other.startsWith(stem + ".") || other.startsWith(stem + "-")) && f.exists()) {
+					long length = f.length();
+					if (f.delete()) total -= length;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return How many bytes of the .tsv a cached snapshot covers (from its name), or -1 if it isn't a cache entry (or
+	 *  was cached by another version)
+	 */
+	private static long lengthOf(File snapshot) {
+		String[] parts = snapshot.getName().split("-");
+		if (parts.length != 4 || !snapshot.getName().startsWith(VERSION_PREFIX)) return -1;
+		try {
+			return Long.parseLong(parts[2]);
+		}
+		catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return SHA-256 of the first length bytes of the file, in hex
+	 */
+	private static String hashPrefix(File file, long length) throws IOException {
+		MessageDigest digest = newDigest();
+		try (InputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+			byte[] buffer = new byte[1 << 16];
+			long read = 0;
+			while (read < length) {
+				int n = in.read(buffer, 0, (int) Math.min(buffer.length, length - read));
+				if (n < 0) throw new IOException("The file is shorter than it was.");
+				digest.update(buffer, 0, n);
+				read += n;
+			}
+		}
+		return hex(digest.digest());
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // Every JVM supports SHA-256
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		char[] digits = "0123456789abcdef".toCharArray();
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[2 * i] = digits[(bytes[i] >> 4) & 0xf];
+			hex[2 * i + 1] = digits[bytes[i] & 0xf];
+		}
+		return new String(hex);
+	}
+}
@@ -0,0 +1,148 @@
+package YAV_Election_Analyzer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * A per-election dictionary of candidates, giving each candidate a small int ID (their index in the list).
+ * Ballots store these IDs in place of the candidates' names, so the analyzers don't have to hash or compare
+ *  Strings while tallying votes.
+ * Candidates can also be looked up straight from the UTF-8 bytes of a .tsv cell (see YAV_TSV_Tokenizer), through an
+ *  open-addressing table of each name's bytes, so reading ballots doesn't need to make a String for every cell.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_Candidate_Dictionary implements Iterable<String> {
+	protected ArrayList<String> names;
+	protected HashMap<String, Integer> ids;
+	private ArrayList<byte[]> encodedNames;
+	private int[] byteSlots; // Candidate ID + 1 for each slot in the byte table (0 is an empty slot)
+
+	/**
+	 * Creates an empty dictionary
+	 */
+	public YAV_Candidate_Dictionary() {
+		names = new ArrayList<String>();
+		ids = new HashMap<String, Integer>();
+		encodedNames = new ArrayList<byte[]>();
+		byteSlots = new int[16];
+	}
+
+	/**
+	 * Looks up the candidate's ID, adding the candidate to the dictionary if they aren't in it yet
+	 * IDs are stored on the ballots as shorts, so there can't be more than Short.MAX_VALUE candidates
+	 * @param name Name of the candidate
+	 * @return The candidate's ID, or YAV_Ballot.NO_VOTE for the empty String
+	 */
+	public int intern(String name) {
+		if (name.equals("")) return YAV_Ballot.NO_VOTE;
+		Integer id = ids.get(name);
+		if (id == null) {
+			if (names.size() >= Short.MAX_VALUE) {
+				throw new IllegalStateException("Too many candidates in one election (" + names.size() + ").");
+			}
+			id = names.size();
+			names.add(name);
+			ids.put(name, id);
+			byte[] encoded = name.getBytes(StandardCharsets.UTF_8);
+			encodedNames.add(encoded);
+			if (2 * names.size() > byteSlots.length) rehashBytes();
+			else byteSlots[findSlot(encoded, 0, encoded.length)] = id + 1;
+		}
+		return id;
+	}
+
+	/**
+	 * Same as intern(String), but for a name given as UTF-8 bytes; only makes a String if the name is new
+	 * @param bytes Buffer holding the name
+	 * @param offset Where the name starts in the buffer
+	 * @param length Length of the name in bytes
+	 * @return The candidate's ID, or YAV_Ballot.NO_VOTE for an empty name
+	 */
+	public int intern(byte[] bytes, int offset, int length) {
+		if (length == 0) return YAV_Ballot.NO_VOTE;
+		int slot = byteSlots[findSlot(bytes, offset, length)];
+		if (slot != 0) return slot - 1;
+		return intern(new String(bytes, offset, length, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Finds the slot in the byte table holding the given name, or the empty slot where it would go
+	 */
+	private int findSlot(byte[] bytes, int offset, int length) {
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) hash = 31 * hash + bytes[i];
+		int mask = byteSlots.length - 1;
+		for (int slot = (hash ^ (hash >>> 16)) & mask; ; slot = (slot + 1) & mask) {
+			if (byteSlots[slot] == 0) return slot;
+			byte[] name = encodedNames.get(byteSlots[slot] - 1);
+			if (name.length != length) continue;
+			int i = 0;
+			while (i < length && name[i] == bytes[offset + i]) i++;
+			if (i == length) return slot;
+		}
+	}
+
+	/**
+	 * Doubles the byte table and puts every name back in it
+	 */
+	private void rehashBytes() {
+		byteSlots = new int[byteSlots.length * 2];
+		for (int id = 0; id < encodedNames.size(); id++) {
+			byte[] name = encodedNames.get(id);
+			byteSlots[findSlot(name, 0, name.length)] = id + 1;
+		}
+	}
+
+	/**
+	 * @param name Name of the candidate
+	 * @return The candidate's ID, or YAV_Ballot.NO_VOTE if they aren't in the dictionary
+	 */
+	public int getID(String name) {
+		Integer id = ids.get(name);
+		if (id == null) return YAV_Ballot.NO_VOTE;
+		return id;
+	}
+
+	/**
+	 * @param id ID of the candidate
+	 * @return Name of the candidate
+	 */
+	public String get(int id) {
+		return names.get(id);
+	}
+
+	/**
+	 * @return Whether the candidate is in the dictionary
+	 */
+	public boolean contains(String name) {
+		return ids.containsKey(name);
+	}
+
+	/**
+	 * @return How many candidates are in the dictionary
+	 */
+	public int size() {
+		return names.size();
+	}
+
+	/**
+	 * Erases all candidates previously entered
+	 */
+	public void clear() {
+		names.clear();
+		ids.clear();
+		encodedNames.clear();
+		byteSlots = new int[16];
+	}
+
+	/**
+	 * Iterates over the candidates' names in order of their IDs
+	 */
+	public Iterator<String> iterator() {
+		return names.iterator();
+	}
+}
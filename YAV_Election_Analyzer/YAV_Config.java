@@ -14,7 +14,7 @@ public class YAV_Config {
 	protected int numOfElections, numOfPositions, numOfCandidates;
 	protected ArrayList<String> elections;
 	protected HashMap<String, Integer> positions;
-	protected HashMap<String, ArrayList<String>> candidates;
+	protected HashMap<String, YAV_Candidate_Dictionary> candidates;
 
 	/**
 	 * Initialize all the variables
@@ -22,7 +22,7 @@ public class YAV_Config {
 	public YAV_Config() {
 		elections = new ArrayList<String>();
 		positions = new HashMap<String, Integer>();
-		candidates = new HashMap<String, ArrayList<String>>();
+		candidates = new HashMap<String, YAV_Candidate_Dictionary>();
 		numOfElections = 0;
 		numOfPositions = 0;
 		numOfCandidates = 0;
@@ -36,7 +36,7 @@ public class YAV_Config {
 	public void addElection(String election, int numOfPositionsAvailable) {
 		elections.add(election);
 		positions.put(election, numOfPositionsAvailable);
-		candidates.put(election, new ArrayList<String>());
+		candidates.put(election, new YAV_Candidate_Dictionary());
 		numOfElections++;
 		numOfPositions += numOfPositionsAvailable;
 	}
@@ -54,13 +54,17 @@ public class YAV_Config {
 	}
 
 	/**
-	 * Adds the candidate to the list of candidates for the specified election
+	 * Adds the candidate to the list of candidates for the specified election (if they aren't in it already)
 	 * @param election Name of the election/top position (eg. "Speaker of the House")
 	 * @param candidate Name of the candidate
+	 * @return The candidate's ID within the election's candidate dictionary
 	 */
-	public void addCanidate(String election, String candidate) {
-		candidates.get(election).add(candidate);
-		numOfCandidates++;
+	public int addCanidate(String election, String candidate) {
+		YAV_Candidate_Dictionary dictionary = candidates.get(election);
+		int oldSize = dictionary.size();
+		int id = dictionary.intern(candidate);
+		if (dictionary.size() > oldSize) numOfCandidates++;
+		return id;
 	}
 
 	/**
@@ -0,0 +1,265 @@
+package YAV_Election_Analyzer;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Console output for the GUI: an OutputStream (wrap it in a UTF-8 PrintStream) that shows everything written to it in
+ *  a JTextArea, without making the window stall when a long analysis prints thousands of lines.
+ * Writes are decoded incrementally (a character split between two writes is kept until the rest of it arrives) into
+ *  a ring buffer of lines waiting to be shown. Once per frame, everything waiting goes into the text area in a single
+ *  document update, and if the text area now has more than maxLines lines, the oldest are removed in one cut. If more
+ *  than maxLines lines pile up between frames, only the newest maxLines are kept, since the rest would be cut anyway.
+ * Optionally spills everything written to a log file too, so nothing is lost when old lines are cut from the window.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_Console_Stream extends OutputStream {
+	public static final int DEFAULT_MAX_LINES = 10000, FRAME_MILLIS = 16;
+
+	private final JTextArea textArea;
+	private final int maxLines;
+	private final CharsetDecoder decoder;
+	private final ByteBuffer undecoded;
+	private final CharBuffer decoded;
+	private final byte[] oneByte;
+	private final String[] lines; // Ring buffer of complete lines waiting to be shown
+	private int firstLine, numLines;
+	private final StringBuilder partialLine; // Waiting text after the last complete line
+	private boolean waiting, overflowed, clearing, closed;
+	private final Timer frameTimer;
+	private Writer spill;
+	private File spillFile;
+
+	/**
+	 * Shows the output in the text area, keeping up to DEFAULT_MAX_LINES lines
+	 */
+	public YAV_Console_Stream(JTextArea textArea) {
+		this(textArea, DEFAULT_MAX_LINES);
+	}
+
+	/**
+	 * @param textArea Where the output is shown (only ever touched on the event dispatch thread)
+	 * @param maxLines How many lines the text area keeps before the oldest are cut
+	 */
+	public YAV_Console_Stream(JTextArea textArea, int maxLines) {
+		if (maxLines < 1) throw new IllegalArgumentException("The console must keep at least one line.");
+		this.textArea = textArea;
+		this.maxLines = maxLines;
+		decoder = StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+												   .onUnmappableCharacter(CodingErrorAction.REPLACE);
+		undecoded = ByteBuffer.allocate(8192);
+		decoded = CharBuffer.allocate(8192);
+		oneByte = new byte[1];
+		lines = new String[maxLines];
+		firstLine = numLines = 0;
+		partialLine = new StringBuilder();
+		frameTimer = new Timer(FRAME_MILLIS, new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				showWaitingText();
+			}
+		});
+		frameTimer.start();
+	}
+
+	/**
+	 * Also writes everything from now on to a log file (replacing it), for the full history of a long session
+	 * @param logFile Where the log is written, as UTF-8
+	 * @throws IOException If the log file can't be opened
+	 */
+	public synchronized void spillTo(File logFile) throws IOException {
+		closeSpill();
+		spill = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile), StandardCharsets.UTF_8));
+		spillFile = logFile;
+	}
+
+	/**
+	 * Clears the text area (and any text still waiting to be shown)
+	 */
+	public synchronized void clear() {
+		numLines = 0;
+		partialLine.setLength(0);
+		clearing = true;
+		overflowed = false;
+		waiting = true;
+	}
+
+	public synchronized void write(int b) {
+		oneByte[0] = (byte) b;
+		write(oneByte, 0, 1);
+	}
+
+	public synchronized void write(byte[] b, int off, int len) {
+		if (closed) return;
+		while (len > 0) {
+			int chunk = Math.min(len, undecoded.remaining());
+			undecoded.put(b, off, chunk);
+			off += chunk;
+			len -= chunk;
+			undecoded.flip();
+			decoder.decode(undecoded, decoded, false);
+			undecoded.compact(); // Keeps the start of a character that's split between writes
+			takeDecoded();
+		}
+	}
+
+	/**
+	 * Flushes the log file (the text area is updated on the next frame regardless)
+	 */
+	public synchronized void flush() {
+		if (spill == null) return;
+		try {
+			spill.flush();
+		}
+		catch (IOException e) {
+			spillFailed(e);
+		}
+	}
+
+	/**
+	 * Shows what's been written so far, stops updating the text area, and closes the log file
+	 */
+	public void close() {
+		synchronized (this) {
+			if (closed) return;
+			closed = true;
+			closeSpill();
+		}
+		frameTimer.stop();
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				showWaitingText();
+			}
+		});
+	}
+
+	/**
+	 * Splits the decoded characters into lines waiting to be shown (dropping '\r's), and spills them to the log
+	 */
+	private void takeDecoded() {
+		decoded.flip();
+		char[] chars = decoded.array();
+		int end = decoded.limit();
+		if (spill != null) {
+			try {
+				spill.write(chars, 0, end);
+			}
+			catch (IOException e) {
+				spillFailed(e);
+			}
+		}
+		int runStart = 0;
+		for (int i = 0; i < end; i++) {
+			char c = chars[i];
+			if (c == '\n' || c == '\r') {
+				partialLine.append(chars, runStart, i - runStart);
+				runStart = i + 1;
+				if (c == '\n') {
+					partialLine.append('\n');
+					addLine(partialLine.toString());
+					partialLine.setLength(0);
+				}
+			}
+		}
+		partialLine.append(chars, runStart, end - runStart);
+		decoded.clear();
+		waiting = true;
+	}
+
+	/**
+	 * Adds a complete line to the ring buffer, overwriting the oldest waiting line if it's full
+	 */
+	private void addLine(String line) {
+		if (numLines == maxLines) {
+			lines[firstLine] = line;
+			firstLine = (firstLine + 1) % maxLines;
+			overflowed = true;
+		}
+		else lines[(firstLine + numLines++) % maxLines] = line;
+	}
+
+	/**
+	 * Moves everything waiting into the text area in one document update, then cuts its oldest lines in one go
+	 * Runs on the event dispatch thread, once per frame
+	 */
+	private void showWaitingText() {
+		String text;
+		boolean replace, cut;
+		synchronized (this) {
+			if (!waiting) return;
+			StringBuilder s = new StringBuilder();
+			for (int i = 0; i < numLines; i++) {
+				s.append(lines[(firstLine + i) % maxLines]);
+				lines[(firstLine + i) % maxLines] = null;
+			}
+			s.append(partialLine);
+			text = s.toString();
+			replace = clearing || overflowed;
+			cut = overflowed;
+			firstLine = numLines = 0;
+			partialLine.setLength(0);
+			waiting = clearing = overflowed = false;
+		}
+		Document doc = textArea.getDocument();
+		try {
+			if (replace) {
+				doc.remove(0, doc.getLength());
+				if (cut) doc.insertString(0, trimmedNotice(), null);
+			}
+			doc.insertString(doc.getLength(), text, null);
+			int excess = doc.getDefaultRootElement().getElementCount() - 1 - maxLines;
+			if (excess > 0) {
+				doc.remove(0, doc.getDefaultRootElement().getElement(excess).getStartOffset());
+				doc.insertString(0, trimmedNotice(), null);
+			}
+		}
+		catch (BadLocationException e) {
+			// Only offsets inside the document are used, so this can't happen
+		}
+	}
+
+	/**
+	 * @return First line of the text area once older lines have been cut, pointing at the log file if there is one
+	 */
+	private synchronized String trimmedNotice() {
+		if (spillFile == null) return "[Earlier output was cut]\n";
+		return "[Earlier output was cut; the full log is in \"" + spillFile.getAbsolutePath() + "\"]\n";
+	}
+
+	private void spillFailed(IOException e) {
+		closeSpill();
+		System.err.println("Error: Could not write the console log (" + e.getMessage() + ").");
+	}
+
+	private void closeSpill() {
+		if (spill == null) return;
+		Writer closing = spill;
+		spill = null;
+		spillFile = null;
+		try {
+			closing.close();
+		}
+		catch (IOException e) {
+			// Nothing more can be saved at this point
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package YAV_Election_Analyzer;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder events for reading a .tsv, counting a pass, and breaking a tie, so a recording of a slow count
+ *  (eg. java -XX:StartFlightRecording=filename=count.jfr ...) lines up its GC, allocation, and CPU samples with
+ *  specific passes of specific elections. They show up in JDK Mission Control under "YAV Election Analyzer".
+ * Each is begun before the work, then ended with record(), which only fills it in and commits it if shouldCommit()
+ *  says it's being recorded, so they cost next to nothing when nothing is recording.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public final class YAV_Events {
+	private YAV_Events() {
+	}
+
+	/**
+	 * Reading ballots from a .tsv (see YAV_TSV_Reader)
+	 */
+	@Name("YAV_Election_Analyzer.Parse")
+	@Label("Parse")
+	@Category("YAV Election Analyzer")
+	@Description("Reading ballots from a .tsv")
+	public static class Parse extends Event {
+		@Label("File")
+		public String file;
+
+		@Label("Operation")
+		@Description("load, append, scan, or read")
+		public String operation;
+
+		@Label("Ballots")
+		@Description("Ballot rows read")
+		public int ballots;
+
+		@Label("Elections")
+		public int elections;
+
+		@Label("Candidates")
+		@Description("Candidates found, across every election")
+		public int candidates;
+
+		@Label("Bytes")
+		@DataAmount
+		public long bytes;
+
+		/**
+		 * Commits the event, if it's being recorded
+		 * @param operation Which of YAV_TSV_Reader's methods read the .tsv (eg. "load")
+		 * @param bytes How much of the .tsv was read
+		 */
+		public void record(String operation, File tsv, int elections, int candidates, int ballots, long bytes) {
+			if (!shouldCommit()) return;
+			this.file = tsv.getPath();
+			this.operation = operation;
+			this.elections = elections;
+			this.candidates = candidates;
+			this.ballots = ballots;
+			this.bytes = bytes;
+			commit();
+		}
+	}
+
+	/**
+	 * Counting one pass of a position, including deciding it and moving the ballots of whoever it eliminates
+	 */
+	@Name("YAV_Election_Analyzer.Pass")
+	@Label("Pass")
+	@Category("YAV Election Analyzer")
+	@Description("Counting one pass of an election")
+	public static class Pass extends Event {
+		@Label("Analyzer")
+		@Description("IRV or STV")
+		public String analyzer;
+
+		@Label("Election")
+		public String election;
+
+		@Label("Position")
+		@Description("Position being filled (for STV, the next position to be filled)")
+		public int position;
+
+		@Label("Pass")
+		public int pass;
+
+		@Label("Ballots")
+		@Description("Ballots still counted for a candidate")
+		public long ballots;
+
+		@Label("Candidates")
+		@Description("Candidates still standing")
+		public int candidates;
+
+		@Label("Eliminated")
+		@Description("Candidates eliminated at the end of the pass")
+		public int eliminated;
+
+		/**
+		 * Commits the event, if it's being recorded
+		 */
+		public void record(String analyzer, String election, int position, int pass, long ballots, int candidates,
+						   int eliminated) {
+			if (!shouldCommit()) return;
+			this.analyzer = analyzer;
+			this.election = election;
+			this.position = position;
+			this.pass = pass;
+			this.ballots = ballots;
+			this.candidates = candidates;
+			this.eliminated = eliminated;
+			commit();
+		}
+	}
+
+	/**
+	 * Breaking a tie between the final two candidates for a position (see IRV_Analysis.breakTie())
+	 */
+	@Name("YAV_Election_Analyzer.TieBreak")
+	@Label("Tie Break")
+	@Category("YAV Election Analyzer")
+	@Description("Breaking a tie between the final two candidates")
+	public static class TieBreak extends Event {
+		@Label("Election")
+		public String election;
+
+		@Label("Position")
+		@Description("Position being filled (0 if the tie breaker was called on its own)")
+		public int position;
+
+		@Label("Pass")
+		@Description("Pass the tie was found in (0 if the tie breaker was called on its own)")
+		public int pass;
+
+		@Label("Ballots")
+		@Description("Ballots cast in the election")
+		public int ballots;
+
+		@Label("Candidates")
+		@Description("Candidates in the election")
+		public int candidates;
+
+		@Label("Candidate A")
+		public String candidateA;
+
+		@Label("Candidate B")
+		public String candidateB;
+
+		@Label("Method")
+		public String method;
+
+		@Label("Delta")
+		public int delta;
+
+		@Label("Winner")
+		public String winner;
+
+		/**
+		 * Commits the event, if it's being recorded
+		 * @param tieBreak How the tie was broken
+		 */
+		public void record(String election, int position, int pass, int ballots, int candidates,
+						   IRV_Result.TieBreak tieBreak) {
+			if (!shouldCommit()) return;
+			this.election = election;
+			this.position = position;
+			this.pass = pass;
+			this.ballots = ballots;
+			this.candidates = candidates;
+			this.candidateA = tieBreak.getCandidateA();
+			this.candidateB = tieBreak.getCandidateB();
+			this.method = tieBreak.getMethod().name();
+			this.delta = tieBreak.getDelta();
+			this.winner = tieBreak.getWinner();
+			commit();
+		}
+	}
+}
@@ -6,18 +6,28 @@ import java.awt.Font;
 import java.awt.GraphicsEnvironment;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingWorker;
 import javax.swing.WindowConstants;
 import javax.swing.filechooser.FileFilter;
 
@@ -34,25 +44,32 @@ public class YAV_Frame extends JFrame implements ActionListener {
 											 "20        30        " +
 											 "40        50        " +
 											 "60        70        8";
-	public enum Analyzer {IRV};	// Currently unused - in place for a drop-down of different analysis types
 	private Font sysFont;
 	private int ballotStartColumn, defaultWidth;
+	private int countedColumn; // Column the open .tsv was counted from (the drop-down may have changed since)
 	private JTextArea textOut;
 	private PrintStream console;
-	private JButton tsvOpenB, exportB;
+	private JButton tsvOpenB, exportB, cancelB;
+	private JProgressBar progressBar;
+	private JCheckBox watchCB;
 	private JComboBox columnCB;
+	private JComboBox<YAV_Analyzer.Kind> analyzerCB;
 	private JLabel columnL;
 	private JPanel mainPanel, buttonPanel;
 	private JFileChooser fileChooser;
 	private File tsvFile;
-	private FileFilter tsvFilter;
+	private FileFilter tsvFilter, resultsFilter;
 	private boolean tsvIsValid;
-	private IRV_Analysis analyzer;
+	private YAV_Analyzer analyzer;
 	private YAV_Config config;
 	private YAV_Ballot_Box ybb;
+	private YAV_TSV_Watcher watcher;
+	private Counter counter;
+	private YAV_Cache cache;
 	
 	public YAV_Frame() {
 		config = new YAV_Config();
+		cache = new YAV_Cache();
 		
 		this.setTitle("Youth & Government Alternative Vote Election Analyzer");
 		this.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
@@ -67,7 +84,20 @@ public class YAV_Frame extends JFrame implements ActionListener {
         textOut.setWrapStyleWord(true);
 
         // Redirects console output to the above JTextArea, for a cheap means of making a GUI
-		console = new PrintStream(new TextAreaOutputStream(textOut));
+        // The text area only keeps the latest lines, so the whole session is also logged to a file
+		YAV_Console_Stream consoleStream = new YAV_Console_Stream(textOut);
+		try {
+			consoleStream.spillTo(new File(System.getProperty("java.io.tmpdir"), "YAV Election Analyzer.log"));
+		}
+		catch (IOException e) {
+			// The console still works, it just can't keep lines older than the text area's
+		}
+		try {
+			console = new PrintStream(consoleStream, true, "UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e); // Every JVM supports UTF-8
+		}
 		System.setOut(console);
 		System.setErr(console);
 		
@@ -89,15 +119,28 @@ public class YAV_Frame extends JFrame implements ActionListener {
 		ballotStartColumn = 6;
 		columnCB.setToolTipText("Default column is F");
 		columnCB.addActionListener(this);
+		analyzerCB = new JComboBox<YAV_Analyzer.Kind>(YAV_Analyzer.Kind.values());
+		analyzerCB.setToolTipText("Rules the elections are counted by (applies to the next .tsv opened)");
 		tsvOpenB = new JButton("Open .tsv");
-		tsvOpenB.setToolTipText("The .tsv file is the spreadsheet of voting data");
+		tsvOpenB.setToolTipText("The .tsv file is the spreadsheet of voting data (a .yavs snapshot of it works too)");
 		tsvOpenB.addActionListener(this);
 		exportB = new JButton("Save Results");
-		exportB.setToolTipText("Export election data to .xlsx");
+		exportB.setToolTipText("Export election data to .csv or .json");
 		exportB.addActionListener(this);
+		watchCB = new JCheckBox("Watch");
+		watchCB.setToolTipText("Keep reading responses added to the .tsv and update the results");
+		watchCB.addActionListener(this);
+		cancelB = new JButton("Cancel");
+		cancelB.setToolTipText("Stop reading or counting the .tsv");
+		cancelB.addActionListener(this);
+		progressBar = new JProgressBar(0, 100);
+		progressBar.setStringPainted(true);
+		progressBar.setString("");
 
         //tsvOpenB.setEnabled(false);
         exportB.setEnabled(false);
+        watchCB.setEnabled(false);
+        cancelB.setEnabled(false);
         
         buttonPanel = new JPanel();
         buttonPanel.setLayout(new FlowLayout());
@@ -106,8 +149,12 @@ public class YAV_Frame extends JFrame implements ActionListener {
 		//buttonPanel.add(cfgGenerateB);
 		buttonPanel.add(columnL);
 		buttonPanel.add(columnCB);
+		buttonPanel.add(analyzerCB);
 		buttonPanel.add(tsvOpenB);
-        //buttonPanel.add(exportB);
+		buttonPanel.add(watchCB);
+		buttonPanel.add(progressBar);
+		buttonPanel.add(cancelB);
+        buttonPanel.add(exportB);
 
 		mainPanel.add(new JScrollPane(textOut));
         mainPanel.add(buttonPanel);
@@ -124,16 +171,27 @@ public class YAV_Frame extends JFrame implements ActionListener {
         	}
         };*/
         tsvFilter = new FileFilter() {
-        	public String getDescription() {return "Tab Separated Values (*.tsv)";}
+        	public String getDescription() {return "Tab Separated Values (*.tsv, *" + YAV_Snapshot.EXTENSION + ")";}
         	public boolean accept(File f) {
         		if (f.isDirectory()) return true;
         	    else {
         	        String filename = f.getName().toLowerCase();
-        	        return filename.endsWith(".tsv");
+        	        return filename.endsWith(".tsv") || filename.endsWith(YAV_Snapshot.EXTENSION);
         	    }
         	}
         };
         
+        resultsFilter = new FileFilter() {
+        	public String getDescription() {return "Results (*.csv, *.json)";}
+        	public boolean accept(File f) {
+        		if (f.isDirectory()) return true;
+        	    else {
+        	        String filename = f.getName().toLowerCase();
+        	        return filename.endsWith(".csv") || filename.endsWith(".json");
+        	    }
+        	}
+        };
+
 		this.setPreferredSize(new Dimension(defaultWidth + 12, 400));
 		this.add(mainPanel);
         this.pack();
@@ -201,32 +259,210 @@ public class YAV_Frame extends JFrame implements ActionListener {
 	        if (returnVal == JFileChooser.APPROVE_OPTION) {
 	            tsvFile = fileChooser.getSelectedFile();
 	            System.out.println("\"" + tsvFile.getName() + "\"");
-            	tsvIsValid = false;
-	            if (YAV_TSV_Reader.scan(tsvFile, config, ballotStartColumn)) {
-					ybb = new YAV_Ballot_Box(config);
-					tsvIsValid = YAV_TSV_Reader.read(tsvFile, ybb, true, ballotStartColumn);
-				}
-	            if (tsvIsValid) {
-	            	analyzer = new IRV_Analysis(ybb);
-	            	exportB.setEnabled(true);
-	            }
-		        else {
-		        	System.out.println("Could not read/process the contents of the .tsv file. See above error report.");
-		        	System.out.println();
-		        	exportB.setEnabled(false);
-		        }
+	            stopWatching();
+	            tsvIsValid = false;
+	            exportB.setEnabled(false);
+	            watchCB.setEnabled(false);
+	            tsvOpenB.setEnabled(false);
+	            columnCB.setEnabled(false);
+	            analyzerCB.setEnabled(false);
+	            cancelB.setEnabled(true);
+	            counter = new Counter(tsvFile, ballotStartColumn, (YAV_Analyzer.Kind) analyzerCB.getSelectedItem());
+	            counter.execute();
 	        }
 	        else if (returnVal == JFileChooser.CANCEL_OPTION) {
 	        	System.out.println("Operation canceled.");
             	System.out.println();
 	        }
 	    }
+	    /**
+		 * BUTTON PANEL, CANCEL BUTTON ACTION:
+		 */
+	    else if (e.getSource() == cancelB) {
+	    	if (counter != null) counter.cancel();
+	    	cancelB.setEnabled(false);
+	    }
+	    /**
+		 * BUTTON PANEL, WATCH CHECKBOX ACTION:
+		 */
+	    else if (e.getSource() == watchCB) {
+	    	if (watchCB.isSelected() && tsvIsValid) startWatching();
+	    	else stopWatching();
+	    }
 	    /**
 		 * BUTTON PANEL, SAVE BUTTON ACTION:
 		 */
 	    else if (e.getSource() == exportB) {
-	    	System.out.println("This functionality hasn't been implemented yet. Sorry.");
-	    	System.out.println();
+	    	fileChooser.setFileFilter(resultsFilter);
+	    	String tsvName = tsvFile.getName();
+	    	if (tsvName.lastIndexOf('.') > 0) tsvName = tsvName.substring(0, tsvName.lastIndexOf('.'));
+	    	fileChooser.setSelectedFile(new File(tsvName + " Results.csv"));
+	    	int returnVal = fileChooser.showSaveDialog(YAV_Frame.this);
+	        if (returnVal == JFileChooser.APPROVE_OPTION) {
+	        	File resultsFile = fileChooser.getSelectedFile();
+	        	if (!resultsFilter.accept(resultsFile)) resultsFile = new File(resultsFile.getPath() + ".csv");
+	        	YAV_Analyzer latest = watcher != null ? watcher.getAnalysis() : analyzer;
+	        	if (IRV_Export.export(latest.getResult(), resultsFile)) {
+	        		System.out.println("Saved the results to \"" + resultsFile.getName() + "\".");
+	        		System.out.println();
+	        	}
+	        }
 	    }
 	}
+
+	/**
+	 * Called on the event dispatch thread once a Counter has finished, been canceled, or failed
+	 */
+	private void counted(YAV_Ballot_Box counted, YAV_Analyzer countedAnalyzer, int startColumn) {
+		counter = null;
+		tsvOpenB.setEnabled(true);
+		columnCB.setEnabled(true);
+		analyzerCB.setEnabled(true);
+		cancelB.setEnabled(false);
+		tsvIsValid = countedAnalyzer != null;
+		if (tsvIsValid) {
+			ybb = counted;
+			analyzer = countedAnalyzer;
+			countedColumn = startColumn;
+			progressBar.setString("Done");
+			exportB.setEnabled(true);
+			watchCB.setEnabled(!YAV_Snapshot.isSnapshot(tsvFile));
+			if (watchCB.isSelected() && watchCB.isEnabled()) startWatching();
+		}
+		else {
+			progressBar.setValue(0);
+			progressBar.setString("");
+		}
+	}
+
+	/**
+	 * Loads and analyzes a .tsv off the event dispatch thread, so the window keeps responding to a big count
+	 * The progress bar follows the bytes read from the .tsv, then the elections counted (each election's results are
+	 *  printed as soon as it's counted), and the Cancel button stops the work at the next batch of rows or pass
+	 */
+	private class Counter extends SwingWorker<YAV_Analyzer, Void> implements YAV_Progress {
+		private final File tsv;
+		private final int startColumn;
+		private final YAV_Analyzer.Kind kind;
+		private volatile boolean canceled;
+		private volatile String status;
+		private YAV_Ballot_Box counted;
+		private IRV_Report report;
+		private int numElections;
+
+		Counter(File tsv, int startColumn, YAV_Analyzer.Kind kind) {
+			this.tsv = tsv;
+			this.startColumn = startColumn;
+			this.kind = kind;
+			status = "Reading ballots...";
+			addPropertyChangeListener(new PropertyChangeListener() {
+				public void propertyChange(PropertyChangeEvent e) {
+					if (e.getPropertyName().equals("progress")) {
+						progressBar.setValue((Integer) e.getNewValue());
+						progressBar.setString(status);
+					}
+				}
+			});
+			progressBar.setValue(0);
+			progressBar.setString(status);
+		}
+
+		/**
+		 * Stops the load or analysis at its next check (unlike SwingWorker.cancel(), done() still waits for it)
+		 */
+		void cancel() {
+			canceled = true;
+		}
+
+		public boolean isCanceled() {
+			return canceled;
+		}
+
+		protected YAV_Analyzer doInBackground() {
+			IRV_Result cachedResult = null;
+			if (YAV_Snapshot.isSnapshot(tsv)) counted = YAV_Snapshot.load(tsv, config);
+			else {
+				YAV_Cache.Entry entry = cache.find(tsv, startColumn, kind.name());
+				if (entry != null) counted = cache.load(entry, tsv, config, startColumn);
+				if (counted == null) counted = YAV_TSV_Reader.load(tsv, config, startColumn, true, this);
+				else if (entry.covers(counted, tsv)) cachedResult = cache.loadResult(entry);
+			}
+			if (counted == null) return null;
+			numElections = counted.numElections;
+			report = new IRV_Report(System.out);
+			if (cachedResult != null) {
+				// Nothing's changed since the last count, so its results just get printed again
+				System.out.println("The .tsv hasn't changed since it was last counted, so these are the cached results.");
+				System.out.println();
+				for (int i = 0; i < numElections; i++) electionCounted(i, cachedResult.getPositions(i));
+				report.printWinnerOrder(cachedResult);
+				return new YAV_Cache.Cached(cachedResult, kind);
+			}
+			status = "Counted 0 of " + numElections + " elections";
+			setProgress(50);
+			YAV_Analyzer counting = kind.analyze(counted, ForkJoinPool.commonPool(), this);
+			if (counting.getResult() == null) return null;
+			if (!YAV_Snapshot.isSnapshot(tsv)) cache.store(tsv, counted, startColumn, kind.name(), counting.getResult());
+			report.printWinnerOrder(counting.getResult());
+			return counting;
+		}
+
+		public void rowsRead(int rows, long bytesRead, long totalBytes) {
+			status = "Read " + rows + " ballots";
+			setProgress(totalBytes > 0 ? (int) Math.min(50, 50 * bytesRead / totalBytes) : 50);
+		}
+
+		// Each election is printed whole once it's counted (and saved from the finished result), not round by round
+		public void roundCounted(int electionNum, int positionNum, IRV_Result.Round round) {}
+
+		public void positionCounted(int electionNum, IRV_Result.Position position) {}
+
+		public void electionCounted(int electionNum, List<IRV_Result.Position> positions) {
+			report.printElection(counted.electionOrder[electionNum], positions);
+			status = "Counted " + (electionNum + 1) + " of " + numElections + " elections";
+			setProgress(50 + 50 * (electionNum + 1) / numElections);
+		}
+
+		protected void done() {
+			YAV_Analyzer countedAnalyzer = null;
+			try {
+				countedAnalyzer = get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e) {
+				System.err.println("Error: The count failed (" + e.getCause() + ").");
+				System.err.println();
+			}
+			if (canceled && counted != null && countedAnalyzer == null) {
+				System.out.println("Stopped counting the elections.");
+				System.out.println();
+			}
+			else if (!canceled && countedAnalyzer == null) {
+				System.out.println("Could not read/process the contents of the .tsv file. See above error report.");
+				System.out.println();
+			}
+			counted(counted, countedAnalyzer, startColumn);
+		}
+	}
+
+	/**
+	 * Starts reading new responses appended to the open .tsv into its ballot box (see YAV_TSV_Watcher)
+	 */
+	private void startWatching() {
+		watcher = new YAV_TSV_Watcher(tsvFile, ybb, countedColumn, analyzer);
+		watcher.start();
+	}
+
+	/**
+	 * Stops watching the open .tsv, keeping its latest ballots and results
+	 */
+	private void stopWatching() {
+		if (watcher == null) return;
+		watcher.stop();
+		ybb = watcher.getBallotBox();
+		analyzer = watcher.getAnalysis();
+		watcher = null;
+	}
 }
@@ -8,12 +8,16 @@ import javax.swing.UnsupportedLookAndFeelException;
  * See YAV_Election_Analyzer.YAV_Frame for GUI setup and most of the heavy lifting.
  * See IRV_Analysis for how it (by default) analyzes a ballot box (from the .tsv).
  *    (IRV = Instant-Runoff Voting)
+ * Given any command-line arguments, runs headless instead (see YAV_Batch) without starting Swing at all.
+ * Either way, registers YAV_Metrics for JMX first.
  * 
  * @author Grant Barker, for use with Louisiana Youth & Government conference elections
  */
 
 public class YAV_Main {
 	public static void main(String args[]) {
+		YAV_Metrics.register(); // So long counts can be watched with JMX tools (eg. JConsole)
+		if (args.length > 0) System.exit(YAV_Batch.run(args));
 		
 		// Tries to set the UI to look like that of the user's OS
 		try {UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());}
@@ -0,0 +1,179 @@
+package YAV_Election_Analyzer;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counters and timers for reading .tsv files and counting elections, so a long count can be watched live with the
+ *  usual JMX tools (see YAV_MetricsMXBean for what's shown). YAV_Main registers it when the program starts.
+ * YAV_TSV_Reader and the analyzers report to it through the static methods below. Elections are counted on several
+ *  threads at once, so the counts are LongAdders, which cost next to nothing to add to.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_Metrics implements YAV_MetricsMXBean {
+	public static final String OBJECT_NAME = "YAV_Election_Analyzer:type=Metrics";
+	private static final YAV_Metrics METRICS = new YAV_Metrics();
+	private static final double NANOS_PER_MILLI = 1e6;
+
+	private final LongAdder rowsRead = new LongAdder(), bytesRead = new LongAdder(), readNanos = new LongAdder(),
+			validationFailures = new LongAdder(), electionsAnalyzed = new LongAdder(),
+			positionsCounted = new LongAdder(), passes = new LongAdder(), ballotsScanned = new LongAdder(),
+			tieBreaks = new LongAdder(), randomTieBreaks = new LongAdder(), electionNanos = new LongAdder();
+	private final AtomicLong lastElectionNanos = new AtomicLong(), maxElectionNanos = new AtomicLong();
+
+	private YAV_Metrics() {
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server (only once, however many times it's called)
+	 */
+	public static void register() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) server.registerMBean(METRICS, name);
+		}
+		catch (JMException | SecurityException e) {
+			System.err.println("Error: Couldn't register the metrics for JMX (" + e + ").");
+		}
+	}
+
+	/**
+	 * @return The metrics everything reports to (eg. to read them without JMX)
+	 */
+	public static YAV_Metrics get() {
+		return METRICS;
+	}
+
+	/**
+	 * @param rows Ballot rows just read
+	 * @param bytes How many bytes of the .tsv they took up
+	 * @param nanos How long reading them took
+	 */
+	static void rowsRead(int rows, long bytes, long nanos) {
+		METRICS.rowsRead.add(rows);
+		METRICS.bytesRead.add(bytes);
+		METRICS.readNanos.add(nanos);
+	}
+
+	static void validationFailed() {
+		METRICS.validationFailures.increment();
+	}
+
+	/**
+	 * @param ballots How many ballots were moved to a candidate to count the pass
+	 */
+	static void passCounted(long ballots) {
+		METRICS.passes.increment();
+		METRICS.ballotsScanned.add(ballots);
+	}
+
+	static void positionCounted() {
+		METRICS.positionsCounted.increment();
+	}
+
+	/**
+	 * @param random Whether the tie could only be broken randomly
+	 */
+	static void tieBroken(boolean random) {
+		METRICS.tieBreaks.increment();
+		if (random) METRICS.randomTieBreaks.increment();
+	}
+
+	/**
+	 * @param nanos How long the election took to count
+	 */
+	static void electionAnalyzed(long nanos) {
+		METRICS.electionsAnalyzed.increment();
+		METRICS.electionNanos.add(nanos);
+		METRICS.lastElectionNanos.set(nanos);
+		for (long max = METRICS.maxElectionNanos.get(); nanos > max; max = METRICS.maxElectionNanos.get()) {
+			if (METRICS.maxElectionNanos.compareAndSet(max, nanos)) break;
+		}
+	}
+
+	public long getRowsRead() {
+		return rowsRead.sum();
+	}
+
+	public long getBytesRead() {
+		return bytesRead.sum();
+	}
+
+	public double getReadMillis() {
+		return readNanos.sum() / NANOS_PER_MILLI;
+	}
+
+	public double getRowsPerSecond() {
+		long nanos = readNanos.sum();
+		return nanos == 0 ? 0 : rowsRead.sum() * 1e9 / nanos;
+	}
+
+	public long getValidationFailures() {
+		return validationFailures.sum();
+	}
+
+	public long getElectionsAnalyzed() {
+		return electionsAnalyzed.sum();
+	}
+
+	public long getPositionsCounted() {
+		return positionsCounted.sum();
+	}
+
+	public long getPasses() {
+		return passes.sum();
+	}
+
+	public double getPassesPerPosition() {
+		long n = positionsCounted.sum();
+		return n == 0 ? 0 : (double) passes.sum() / n;
+	}
+
+	public long getBallotsScanned() {
+		return ballotsScanned.sum();
+	}
+
+	public double getBallotsScannedPerPass() {
+		long n = passes.sum();
+		return n == 0 ? 0 : (double) ballotsScanned.sum() / n;
+	}
+
+	public long getTieBreaks() {
+		return tieBreaks.sum();
+	}
+
+	public long getRandomTieBreaks() {
+		return randomTieBreaks.sum();
+	}
+
+	public double getLastElectionMillis() {
+		return lastElectionNanos.get() / NANOS_PER_MILLI;
+	}
+
+	public double getMeanElectionMillis() {
+		long n = electionsAnalyzed.sum();
+		return n == 0 ? 0 : electionNanos.sum() / NANOS_PER_MILLI / n;
+	}
+
+	public double getMaxElectionMillis() {
+		return maxElectionNanos.get() / NANOS_PER_MILLI;
+	}
+
+	public void reset() {
+		for (LongAdder a : new LongAdder[] {rowsRead, bytesRead, readNanos, validationFailures, electionsAnalyzed,
+											positionsCounted, passes, ballotsScanned, tieBreaks, randomTieBreaks,
+											electionNanos}) {
+			a.reset();
+		}
+		lastElectionNanos.set(0);
+		maxElectionNanos.set(0);
+	}
+}
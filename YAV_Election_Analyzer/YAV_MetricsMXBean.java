@@ -0,0 +1,96 @@
+package YAV_Election_Analyzer;
+
+/**
+ * What YAV_Metrics shows over JMX (eg. in JConsole or VisualVM, under YAV_Election_Analyzer > Metrics)
+ * Every count is since the program started (or since reset() was last called)
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public interface YAV_MetricsMXBean {
+	/**
+	 * @return How many ballot rows have been read from .tsv files (including rows appended while being watched)
+	 */
+	long getRowsRead();
+
+	/**
+	 * @return How many bytes of ballot rows have been read from .tsv files
+	 */
+	long getBytesRead();
+
+	/**
+	 * @return Time spent reading ballot rows, in milliseconds
+	 */
+	double getReadMillis();
+
+	/**
+	 * @return Ballot rows read per second of reading
+	 */
+	double getRowsPerSecond();
+
+	/**
+	 * @return How many times a .tsv couldn't be read or didn't validate
+	 */
+	long getValidationFailures();
+
+	/**
+	 * @return How many elections have been counted (by any analyzer)
+	 */
+	long getElectionsAnalyzed();
+
+	/**
+	 * @return How many positions have been filled (or left without a winner)
+	 */
+	long getPositionsCounted();
+
+	/**
+	 * @return How many passes have been counted, across every position
+	 */
+	long getPasses();
+
+	/**
+	 * @return Mean number of passes it's taken to fill a position
+	 */
+	double getPassesPerPosition();
+
+	/**
+	 * @return How many ballots have been moved to a candidate, across every pass
+	 */
+	long getBallotsScanned();
+
+	/**
+	 * @return Mean number of ballots moved to a candidate to count a pass (only the ballots that changed hands are
+	 *  moved, so this drops sharply after a position's first pass)
+	 */
+	double getBallotsScannedPerPass();
+
+	/**
+	 * @return How many ties have been broken, by any method
+	 */
+	long getTieBreaks();
+
+	/**
+	 * @return How many of those ties could only be broken randomly
+	 */
+	long getRandomTieBreaks();
+
+	/**
+	 * @return How long the last election took to count, in milliseconds
+	 */
+	double getLastElectionMillis();
+
+	/**
+	 * @return How long an election has taken to count on average, in milliseconds
+	 */
+	double getMeanElectionMillis();
+
+	/**
+	 * @return How long the slowest election took to count, in milliseconds
+	 */
+	double getMaxElectionMillis();
+
+	/**
+	 * Sets every count back to zero
+	 */
+	void reset();
+}
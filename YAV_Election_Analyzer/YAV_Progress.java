@@ -0,0 +1,51 @@
+package YAV_Election_Analyzer;
+
+import java.util.List;
+
+/**
+ * Receives progress from a long load or analysis (eg. to drive a progress bar), and can cancel it
+ * YAV_TSV_Reader.load() reports rows as it reads them, and the analyzers report each round and position as it's
+ *  counted (on whichever thread is counting its election), then each election once it's counted (in electionOrder,
+ *  on the thread that started the analysis), so results can be shown or exported before the rest are done
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public interface YAV_Progress {
+	/**
+	 * Called every so often while ballots are read from the .tsv
+	 * @param rows How many ballot rows have been read so far
+	 * @param bytesRead How far into the .tsv the reader is
+	 * @param totalBytes How long the .tsv is
+	 */
+	void rowsRead(int rows, long bytesRead, long totalBytes);
+
+	/**
+	 * Called as soon as a pass has been counted, from the thread counting its election (elections are counted at the
+	 *  same time, so rounds of different elections can arrive interleaved, and before electionCounted() for them)
+	 * @param electionNum Which election
+	 * @param positionNum Which position the pass is for (for STV, the next position to be filled)
+	 * @param round The pass' tallies, and who was eliminated (or whose surplus was transferred) before it
+	 */
+	void roundCounted(int electionNum, int positionNum, IRV_Result.Round round);
+
+	/**
+	 * Called once a position has been filled (or left without a winner), after all of its rounds, from the same thread
+	 * @param electionNum Which election
+	 * @param position The counted position
+	 */
+	void positionCounted(int electionNum, IRV_Result.Position position);
+
+	/**
+	 * Called once an election has been counted (and every election before it)
+	 * @param electionNum Which election
+	 * @param positions The election's counted positions, in order
+	 */
+	void electionCounted(int electionNum, List<IRV_Result.Position> positions);
+
+	/**
+	 * Checked between batches of rows and between passes; once true, the load or analysis stops early
+	 * @return True if the work should be abandoned
+	 */
+	boolean isCanceled();
+}
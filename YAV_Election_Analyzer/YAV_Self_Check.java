@@ -0,0 +1,286 @@
+package YAV_Election_Analyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Regression checks for behavior that's easy to break without any count looking wrong, run on generated .tsv files
+ *  (the project has no test suite, so these are run by hand or by a build script):
+ *    --cache   reopening a .tsv through YAV_Cache, as the window does, when the .tsv doesn't end in a newline (as
+ *              Google Sheets exports never do), including an entry cached without the final row and a final row
+ *              that's written to after it was cached
+ *    --batch   counting generated elections with and without batch elimination, which have to pick the same
+ *              winners (see checkBatchElimination())
+ * Run with: java YAV_Election_Analyzer.YAV_Self_Check [--cache] [--batch 800] [-s 42]
+ *  (with no check named, every check is run, 800 elections for --batch); exits with 1 if any check fails.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_Self_Check {
+	private final PrintStream report;
+	private final PrintStream nowhere; // Swallows what the reader prints while a check loads a .tsv
+	private long seed = 42;
+
+	/**
+	 * Runs each task on the thread that hands it over, so an analysis given it counts its elections on that thread
+	 */
+	private static class CurrentThreadExecutor extends AbstractExecutorService {
+		private volatile boolean shutdown;
+
+		public void execute(Runnable command) {
+			command.run();
+		}
+
+		public void shutdown() {
+			shutdown = true;
+		}
+
+		public List<Runnable> shutdownNow() {
+			shutdown = true;
+			return new ArrayList<Runnable>();
+		}
+
+		public boolean isShutdown() {
+			return shutdown;
+		}
+
+		public boolean isTerminated() {
+			return shutdown;
+		}
+
+		public boolean awaitTermination(long timeout, TimeUnit unit) {
+			return shutdown;
+		}
+	}
+
+	/**
+	 * @param report Where each check's outcome is printed
+	 */
+	public YAV_Self_Check(PrintStream report) {
+		this.report = report;
+		nowhere = new PrintStream(new OutputStream() {
+			public void write(int b) {}
+			public void write(byte[] b, int off, int len) {}
+		});
+	}
+
+	public static void main(String[] args) throws IOException {
+		YAV_Self_Check check = new YAV_Self_Check(System.out);
+		boolean cache = false;
+		int batchElections = 0;
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--cache")) cache = true;
+			else if (args[i].equals("--batch") && i + 1 < args.length) batchElections = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-s") && i + 1 < args.length) check.seed = Long.parseLong(args[++i]);
+			else throw new IllegalArgumentException("Unknown option " + args[i]);
+		}
+		boolean all = !cache && batchElections == 0, passed = true;
+		if (all || cache) passed &= check.checkCacheTail();
+		if (all || batchElections > 0) passed &= check.checkBatchElimination(all ? 800 : batchElections);
+		if (!passed) System.exit(1);
+	}
+
+	/**
+	 * Reopens a generated .tsv with no newline at the end through a new YAV_Cache, the way YAV_Frame does, and checks
+	 *  that every open has all of its ballots and the same results as a fresh count:
+	 *    1. the first open (nothing cached yet)
+	 *    2. a second open, which has to be a full hit
+	 *    3. an open with only an entry that stops before the final row (which older versions cached), which has to
+	 *       read the final row and not count as a full hit
+	 *    4. an open after another row (again with no newline) is appended
+	 *    5. an open after more is written to that final row, which has to count it as one row, not two
+	 * @return True if every open matched
+	 */
+	public boolean checkCacheTail() throws IOException {
+		File tsv = File.createTempFile("yav-check", ".tsv");
+		File directory = Files.createTempDirectory("yav-check-cache").toFile();
+		int failures = 0;
+		try {
+			YAV_TSV_Generator generator = new YAV_TSV_Generator(3, 6, seed);
+			generator.setPartialBallots(0.05, 0.4, 0.05);
+			generator.write(tsv, 500);
+			truncate(tsv, tsv.length() - 1); // Drops the newline the generator ends with
+			YAV_Cache cache = new YAV_Cache(directory, YAV_Cache.DEFAULT_MAX_BYTES);
+			failures += checkOpen("first open", cache, tsv, false);
+			failures += checkOpen("second open", cache, tsv, true);
+
+			File lastRowless = File.createTempFile("yav-check", ".tsv");
+			try {
+				byte[] bytes = Files.readAllBytes(tsv.toPath());
+				int lastRow = bytes.length;
+				while (bytes[lastRow - 1] != '\n') lastRow--;
+				try (FileOutputStream out = new FileOutputStream(lastRowless)) {
+					out.write(bytes, 0, lastRow);
+				}
+				File staleDirectory = Files.createTempDirectory("yav-check-cache").toFile();
+				YAV_Ballot_Box ybb = load(lastRowless);
+				YAV_Cache stale = new YAV_Cache(staleDirectory, YAV_Cache.DEFAULT_MAX_BYTES);
+				stale.store(tsv, ybb, 6, YAV_Analyzer.Kind.IRV.name(), new IRV_Analysis(ybb).getResult());
+				failures += checkOpen("open with the final row uncached", stale, tsv, false);
+				delete(staleDirectory);
+			}
+			finally {
+				lastRowless.delete();
+			}
+
+			// The new row is a copy of the first ballot, written in two halves
+			String row = Files.readAllLines(tsv.toPath(), StandardCharsets.UTF_8).get(1);
+			int half = row.length() / 2;
+			append(tsv, "\n" + row.substring(0, half));
+			failures += checkOpen("open after appending a row", cache, tsv, false);
+			append(tsv, row.substring(half));
+			failures += checkOpen("open after finishing the final row", cache, tsv, false);
+		}
+		finally {
+			tsv.delete();
+			delete(directory);
+		}
+		report.println("Checked reopening a .tsv without a final newline through the cache: " + failures + " failures");
+		return failures == 0;
+	}
+
+	/**
+	 * Counts generated elections both with and without batch elimination (see IRV_Analysis.safeBatch()) and checks
+	 *  that they pick the same winners. The elections run from 4 to 17 candidates and from 50 ballots up, with each
+	 *  of the generator's models and some abstaining, truncated, and blank votes. An election that either count had
+	 *  to break a tie randomly is skipped, since its winners can differ by chance.
+	 * @param numElections How many elections to check
+	 * @return True if every election checked had the same winners both ways
+	 */
+	public boolean checkBatchElimination(int numElections) throws IOException {
+		File tsv = File.createTempFile("yav-check", ".tsv");
+		tsv.deleteOnExit();
+		CurrentThreadExecutor currentThread = new CurrentThreadExecutor();
+		int checked = 0, skipped = 0, batches = 0, mismatches = 0;
+		try {
+			for (int i = 0; checked < numElections; i++) {
+				YAV_TSV_Generator generator = new YAV_TSV_Generator(2, 4 + i % 14, seed + i);
+				if (i % 3 == 0) generator.setModel(YAV_TSV_Generator.Model.BLOCS, 0.6, 3);
+				else if (i % 3 == 1) generator.setModel(YAV_TSV_Generator.Model.MALLOWS, 0.8, 1);
+				generator.setPartialBallots(0.05, 0.4, 0.05);
+				generator.write(tsv, 50 + i * 7);
+				YAV_Ballot_Box ybb = load(tsv);
+				IRV_Result single = new IRV_Analysis(ybb, currentThread, null, false).getResult();
+				IRV_Result batch = new IRV_Analysis(ybb, currentThread, null, true).getResult();
+				for (int e = 0; e < ybb.numElections && checked < numElections; e++) {
+					if (brokeTieRandomly(single, e) || brokeTieRandomly(batch, e)) {
+						skipped++;
+						continue;
+					}
+					checked++;
+					for (IRV_Result.Position p : batch.getPositions(e)) {
+						for (IRV_Result.Round round : p.getRounds()) {
+							if (round.isBatchElimination()) batches++;
+						}
+					}
+					if (!single.getWinners(e).equals(batch.getWinners(e))) {
+						mismatches++;
+						report.println("Mismatch in " + ybb.electionOrder[e] + " (seed " + (seed + i) + "): " +
+									   single.getWinners(e) + " one at a time, " + batch.getWinners(e) + " in batches");
+					}
+				}
+			}
+		}
+		finally {
+			tsv.delete();
+		}
+		report.println("Checked " + checked + " elections (" + skipped + " skipped for random tie breaks, " + batches +
+					   " batch eliminations): " + mismatches + " mismatches");
+		return mismatches == 0;
+	}
+
+	private static boolean brokeTieRandomly(IRV_Result result, int electionNum) {
+		for (IRV_Result.Position p : result.getPositions(electionNum)) {
+			IRV_Result.TieBreak t = p.getTieBreak();
+			if (t != null && t.getMethod() == IRV_Result.TieBreak.Method.RANDOM) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Opens the .tsv through the cache like YAV_Frame.Counter does, storing a new count, and checks it against a
+	 *  fresh count of the .tsv
+	 * @param fullHit Whether the open should be a full hit (the cached results used as they are)
+	 * @return 1 if the open didn't match, 0 if it did
+	 */
+	private int checkOpen(String name, YAV_Cache cache, File tsv, boolean fullHit) {
+		YAV_Ballot_Box fresh = load(tsv);
+		String want = reportOf(new IRV_Analysis(fresh).getResult());
+		PrintStream stdout = System.out;
+		System.setOut(nowhere);
+		YAV_Ballot_Box ybb = null;
+		IRV_Result result = null;
+		try {
+			YAV_Cache.Entry entry = cache.find(tsv, 6, YAV_Analyzer.Kind.IRV.name());
+			if (entry != null) ybb = cache.load(entry, tsv, new YAV_Config(), 6);
+			if (ybb == null) ybb = YAV_TSV_Reader.load(tsv, new YAV_Config(), 6, true);
+			else if (entry.covers(ybb, tsv)) result = cache.loadResult(entry);
+		}
+		finally {
+			System.setOut(stdout);
+		}
+		boolean hit = result != null;
+		if (!hit) {
+			result = new IRV_Analysis(ybb, ForkJoinPool.commonPool()).getResult();
+			cache.store(tsv, ybb, 6, YAV_Analyzer.Kind.IRV.name(), result);
+		}
+		String problem = null;
+		if (ybb.size() != fresh.size()) problem = ybb.size() + " ballots instead of " + fresh.size();
+		else if (hit != fullHit) problem = hit ? "used cached results that were out of date" : "missed the cache";
+		else if (!reportOf(result).equals(want)) problem = "results differ from a fresh count";
+		if (problem == null) return 0;
+		report.println("Mismatch on the " + name + ": " + problem);
+		return 1;
+	}
+
+	/**
+	 * Loads the .tsv into a compressed ballot box, without printing the reader's progress
+	 */
+	private YAV_Ballot_Box load(File tsv) {
+		PrintStream stdout = System.out;
+		System.setOut(nowhere);
+		try {
+			return YAV_TSV_Reader.load(tsv, new YAV_Config(), 6, true);
+		}
+		finally {
+			System.setOut(stdout);
+		}
+	}
+
+	private static String reportOf(IRV_Result result) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new IRV_Report(new PrintStream(out)).print(result);
+		return out.toString();
+	}
+
+	private static void truncate(File file, long length) throws IOException {
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			out.setLength(length);
+		}
+	}
+
+	private static void append(File file, String text) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file, true)) {
+			out.write(text.getBytes("UTF-8"));
+		}
+	}
+
+	private static void delete(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) for (File f : files) f.delete();
+		directory.delete();
+	}
+}
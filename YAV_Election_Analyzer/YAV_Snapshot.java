@@ -0,0 +1,350 @@
+package YAV_Election_Analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Saves a loaded ballot box to a compact binary file (a .yavs snapshot) and loads it back, so reopening the same
+ *  election doesn't pay for parsing and validating the .tsv again. A snapshot can be opened anywhere a .tsv can.
+ * Layout (big-endian):
+ *    header   "YAVS", format version (int), payload length (long), CRC32 of the payload (int)
+ *    payload  # of ballots (int), .tsv position (long), # of elections (int), then for each election:
+ *             name, # of positions (int), # of candidates (int), each candidate's name (in ID order),
+ *             ranking width (int), # of groups (int), every group's count (ints), then every group's ranking
+ *             (width shorts each, candidate IDs with -1 for no vote); no two groups have the same ranking
+ *    Names are a length (int) and that many bytes of UTF-8.
+ * Only each election's candidate dictionary and distinct rankings are stored, so it's as small as the compressed
+ *  ballot box; it's written in buffered chunks and read into one heap buffer (not a memory-mapped file, which would
+ *  keep the file open until it's garbage collected, so Windows couldn't delete or replace it), with each election's
+ *  counts and rankings packed together so they're copied out in bulk. Every count is checked against the payload's
+ *  size before anything's allocated for it, so a damaged snapshot is reported rather than running out of memory.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_Snapshot {
+	public static final String EXTENSION = ".yavs";
+	public static final int VERSION = 1;
+	private static final byte[] MAGIC = {'Y', 'A', 'V', 'S'};
+	private static final int HEADER_SIZE = MAGIC.length + 4 + 8 + 4;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Writes the ballot box (its elections, candidate dictionaries, and weighted groups) to a snapshot
+	 * @param ybb Filled ballot box
+	 * @param snapshot Where the snapshot is written (replaced if it exists)
+	 * @return True if the snapshot was written
+	 */
+	public static boolean save(YAV_Ballot_Box ybb, File snapshot) {
+		try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.WRITE,
+													StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			Writer out = new Writer(channel);
+			out.putInt(ybb.size());
+			out.putLong(ybb.tsvPosition);
+			out.putInt(ybb.numElections);
+			for (int i = 0; i < ybb.numElections; i++) {
+				out.putString(ybb.electionOrder[i]);
+				out.putInt(ybb.numPositions[i]);
+				out.putInt(ybb.numCandidates[i]);
+				for (int j = 0; j < ybb.numCandidates[i]; j++) out.putString(ybb.candidateOrder[i][j]);
+				int width = 0;
+				for (YAV_Ballot_Group g : ybb.groups.get(i)) width = Math.max(width, g.ranking.length);
+				Collection<YAV_Ballot_Group> distinct = distinctGroups(ybb, i, width);
+				out.putInt(width);
+				out.putInt(distinct.size());
+				for (YAV_Ballot_Group g : distinct) out.putInt(g.count);
+				for (YAV_Ballot_Group g : distinct) {
+					for (int j = 0; j < width; j++) out.putShort(g.ranking[j]);
+				}
+			}
+			out.finish();
+		}
+		catch (IOException e) {
+			return snapshotError("Could not write the snapshot \"" + snapshot.getName() + "\" (" + e.getMessage() + ").");
+		}
+		return true;
+	}
+
+	/**
+	 * @return The election's groups with every ranking padded to the same width, merging any that are then the same
+	 *  (a compressed ballot box from YAV_TSV_Reader.load() already has distinct rankings of one width, and is used as is)
+	 */
+	private static Collection<YAV_Ballot_Group> distinctGroups(YAV_Ballot_Box ybb, int electionNum, int width) {
+		boolean sameWidth = true;
+		for (YAV_Ballot_Group g : ybb.groups.get(electionNum)) sameWidth &= g.ranking.length == width;
+		if (ybb.compressed && sameWidth) return ybb.groups.get(electionNum);
+		LinkedHashMap<YAV_Ballot_Group, YAV_Ballot_Group> merged = new LinkedHashMap<YAV_Ballot_Group, YAV_Ballot_Group>();
+		for (YAV_Ballot_Group g : ybb.groups.get(electionNum)) {
+			short[] padded = Arrays.copyOf(g.ranking, width); // Blanks past the end of a ranking don't change it
+			Arrays.fill(padded, g.ranking.length, width, YAV_Ballot.NO_VOTE);
+			YAV_Ballot_Group group = new YAV_Ballot_Group(padded, g.count);
+			YAV_Ballot_Group existing = merged.get(group);
+			if (existing != null) existing.count += g.count;
+			else merged.put(group, group);
+		}
+		return merged.values();
+	}
+
+	/**
+	 * Reads a snapshot into a new compressed ballot box, checking its version and checksum first
+	 * @param snapshot Snapshot written by save()
+	 * @param config YAV_Config object to be filled with the snapshot's elections and candidates
+	 * @return Filled ballot box, or null if the snapshot couldn't be read or is damaged
+	 */
+	public static YAV_Ballot_Box load(File snapshot, YAV_Config config) {
+		config.clearAll();
+		if (!snapshot.isFile()) {
+			snapshotError("The snapshot file could not be found.");
+			return null;
+		}
+		YAV_Ballot_Box ybb;
+		try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			if (!readFully(channel, header) || !hasMagic(header)) {
+				snapshotError("\"" + snapshot.getName() + "\" is not a YAV snapshot.");
+				return null;
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				snapshotError("\"" + snapshot.getName() + "\" is a version " + version + " snapshot, but only version " +
+							  VERSION + " can be read.");
+				return null;
+			}
+			long payloadLength = header.getLong();
+			int checksum = header.getInt();
+			if (payloadLength != channel.size() - HEADER_SIZE) {
+				snapshotError("\"" + snapshot.getName() + "\" is incomplete.");
+				return null;
+			}
+			if (payloadLength > Integer.MAX_VALUE - 8) {
+				snapshotError("\"" + snapshot.getName() + "\" is too big to read.");
+				return null;
+			}
+			ByteBuffer in = ByteBuffer.allocate((int) payloadLength);
+			if (!readFully(channel, in)) {
+				snapshotError("\"" + snapshot.getName() + "\" is incomplete.");
+				return null;
+			}
+			CRC32 crc = new CRC32();
+			crc.update(in.array(), 0, in.limit());
+			if ((int) crc.getValue() != checksum) {
+				snapshotError("\"" + snapshot.getName() + "\" is damaged (its checksum doesn't match).");
+				return null;
+			}
+			ybb = readPayload(in, config);
+		}
+		catch (IOException e) {
+			snapshotError("Could not read the snapshot \"" + snapshot.getName() + "\" (" + e.getMessage() + ").");
+			return null;
+		}
+		catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+			config.clearAll();
+			snapshotError("\"" + snapshot.getName() + "\" is damaged (its contents don't add up).");
+			return null;
+		}
+		System.out.println("Counted " + ybb.size() + " cast ballots.");
+		System.out.println();
+		return ybb;
+	}
+
+	/**
+	 * @return True if the file starts like a snapshot (rather than a .tsv)
+	 */
+	public static boolean isSnapshot(File file) {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer start = ByteBuffer.allocate(MAGIC.length);
+			while (start.hasRemaining() && channel.read(start) >= 0);
+			start.flip();
+			return hasMagic(start);
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Fills the buffer from the channel's position, then flips it for reading
+	 * @return False if the file ended first
+	 */
+	private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) return false;
+		}
+		buffer.flip();
+		return true;
+	}
+
+	private static boolean hasMagic(ByteBuffer in) {
+		if (in.remaining() < MAGIC.length) return false;
+		for (byte b : MAGIC) {
+			if (in.get() != b) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Rebuilds the config and ballot box from a checked payload
+	 */
+	private static YAV_Ballot_Box readPayload(ByteBuffer in, YAV_Config config) {
+		int numBallots = in.getInt();
+		long tsvPosition = in.getLong();
+		int numElections = in.getInt();
+		if (numBallots < 0 || tsvPosition < 0) throw new IllegalStateException("The snapshot's ballot count or .tsv position is negative.");
+		if (numElections < 0 || numElections > in.remaining() / 20) { // Each election takes at least 20 bytes
+			throw new IllegalStateException("The snapshot has more elections than it holds.");
+		}
+		System.out.println("Elections:");
+		// Each election's groups come after its candidates, so they're kept until the ballot box can be made
+		ArrayList<ArrayList<YAV_Ballot_Group>> groups = new ArrayList<ArrayList<YAV_Ballot_Group>>();
+		for (int i = 0; i < numElections; i++) {
+			String election = getString(in);
+			int numPositions = in.getInt();
+			config.addElection(election, numPositions);
+			int numCandidates = in.getInt();
+			if (numCandidates < 0 || numCandidates > in.remaining() / 4) { // Each name takes at least 4 bytes
+				throw new IllegalStateException(election + " has more candidates than the snapshot holds.");
+			}
+			for (int j = 0; j < numCandidates; j++) {
+				if (config.addCanidate(election, getString(in)) != j) {
+					throw new IllegalStateException("Candidate " + j + " of " + election + " is a duplicate.");
+				}
+			}
+			System.out.print("    " + election + ": " + numPositions + " Candidate"); // Same as the .tsv's header
+			if (numPositions != 1) System.out.print("s");
+			System.out.println();
+			int width = in.getInt();
+			int numGroups = in.getInt();
+			// Every group holds at least one ballot, so there can't be more groups than ballots
+			if (width < 0 || numGroups < 0 || numGroups > numBallots ||
+				(long) numGroups * (4 + 2L * width) > in.remaining()) {
+				throw new IllegalStateException("Election " + election + " has more groups than the snapshot holds.");
+			}
+			int[] counts = new int[numGroups];
+			in.asIntBuffer().get(counts);
+			in.position(in.position() + 4 * numGroups);
+			long cast = 0;
+			for (int count : counts) {
+				if (count <= 0) throw new IllegalStateException("A group in " + election + " has no ballots.");
+				cast += count;
+			}
+			if (cast != numBallots) { // Every ballot is in one of each election's groups
+				throw new IllegalStateException(election + " has " + cast + " ballots, not " + numBallots + ".");
+			}
+			ShortBuffer rankings = in.asShortBuffer();
+			in.position(in.position() + 2 * numGroups * width);
+			ArrayList<YAV_Ballot_Group> electionGroups = new ArrayList<YAV_Ballot_Group>(numGroups);
+			for (int g = 0; g < numGroups; g++) {
+				short[] ranking = new short[width];
+				rankings.get(ranking);
+				for (short c : ranking) {
+					if (c < YAV_Ballot.NO_VOTE || c >= numCandidates) {
+						throw new IllegalStateException("A ranking in " + election + " has an unknown candidate.");
+					}
+				}
+				electionGroups.add(new YAV_Ballot_Group(ranking, counts[g]));
+			}
+			groups.add(electionGroups);
+		}
+		if (in.hasRemaining()) throw new IllegalStateException("The snapshot has data after its last election.");
+		YAV_Ballot_Box ybb = new YAV_Ballot_Box(config, true);
+		for (int i = 0; i < numElections; i++) ybb.addDistinctGroups(i, groups.get(i));
+		ybb.numBallots = numBallots;
+		ybb.tsvPosition = tsvPosition;
+		return ybb;
+	}
+
+	private static String getString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0 || length > in.remaining()) throw new IllegalStateException("A name runs past the snapshot.");
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static boolean snapshotError(String error) {
+		System.err.println("Error: " + error);
+		return false;
+	}
+
+	/**
+	 * Writes the payload through one reusable buffer, checksumming it as it goes, then fills in the header
+	 */
+	private static class Writer {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private final CRC32 crc;
+		private long payloadLength;
+
+		Writer(FileChannel channel) throws IOException {
+			this.channel = channel;
+			buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			crc = new CRC32();
+			payloadLength = 0;
+			channel.position(HEADER_SIZE);
+		}
+
+		void putShort(short value) throws IOException {
+			make(2);
+			buffer.putShort(value);
+		}
+
+		void putInt(int value) throws IOException {
+			make(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			make(8);
+			buffer.putLong(value);
+		}
+
+		void putString(String value) throws IOException {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			putInt(bytes.length);
+			for (int written = 0; written < bytes.length; ) {
+				make(1);
+				int chunk = Math.min(bytes.length - written, buffer.remaining());
+				buffer.put(bytes, written, chunk);
+				written += chunk;
+			}
+		}
+
+		/**
+		 * Drains the buffer if it has less than the given number of bytes of room
+		 */
+		private void make(int room) throws IOException {
+			if (buffer.remaining() < room) drain();
+		}
+
+		private void drain() throws IOException {
+			buffer.flip();
+			crc.update(buffer.duplicate());
+			payloadLength += buffer.remaining();
+			while (buffer.hasRemaining()) channel.write(buffer);
+			buffer.clear();
+		}
+
+		/**
+		 * Writes whatever's left of the payload, then the header in front of it
+		 */
+		void finish() throws IOException {
+			drain();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.put(MAGIC).putInt(VERSION).putLong(payloadLength).putInt((int) crc.getValue());
+			header.flip();
+			channel.position(0);
+			while (header.hasRemaining()) channel.write(header);
+		}
+	}
+}
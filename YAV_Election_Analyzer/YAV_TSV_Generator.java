@@ -0,0 +1,277 @@
+package YAV_Election_Analyzer;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Writes synthetic .tsv files laid out like a Google Form export, for load and scaling tests.
+ * The header has filler columns up to ballotStartColumn, then a group of "Election n [Choice k]" columns for each
+ *  election, which is what YAV_TSV_Reader expects. Rows are streamed straight to disk, so millions of them only need
+ *  a buffer's worth of memory, and everything comes from one seeded Random, so the same arguments give the same file.
+ * Voters' rankings follow one of three preference models:
+ *    UNIFORM - every ordering of the candidates is equally likely
+ *    MALLOWS - orderings close to one reference ranking are likely; dispersion (0 to 1) sets how close, where 0 is
+ *              always the reference ranking and 1 is uniform (drawn with the repeated insertion model)
+ *    BLOCS   - voters belong to one of several blocs, each with its own Mallows reference ranking
+ * Ballots can also be partial: a voter may skip an election entirely, stop ranking partway, or leave a blank cell.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_TSV_Generator {
+	public enum Model {UNIFORM, MALLOWS, BLOCS};
+
+	protected int numElections, numCandidates, ballotStartColumn, numBlocs;
+	protected double dispersion, abstainRate, truncateRate, blankRate;
+	protected Model model;
+	private Random random;
+	private String[][] candidateNames;
+	private int[][][] blocRankings; // Election #, bloc #, reference ranking of candidate indices
+	private double[] blocWeights;
+	private double[] insertionWeights;
+	private int[] ranking;
+
+	/**
+	 * Sets up a generator with Mallows preferences (dispersion 0.7), every ballot complete, and votes from column F
+	 * @param numElections How many elections are on the ballot
+	 * @param numCandidates How many candidates run in each election
+	 * @param seed Seed for every random choice, so files can be reproduced
+	 */
+	public YAV_TSV_Generator(int numElections, int numCandidates, long seed) {
+		if (numElections < 1 || numCandidates < 1) {
+			throw new IllegalArgumentException("There must be at least one election and one candidate.");
+		}
+		this.numElections = numElections;
+		this.numCandidates = numCandidates;
+		random = new Random(seed);
+		ballotStartColumn = 6;
+		model = Model.MALLOWS;
+		dispersion = 0.7;
+		numBlocs = 3;
+		abstainRate = 0;
+		truncateRate = 0;
+		blankRate = 0;
+		candidateNames = new String[numElections][numCandidates];
+		for (int e = 0; e < numElections; e++) {
+			for (int c = 0; c < numCandidates; c++) {
+				candidateNames[e][c] = "Candidate " + (e + 1) + "-" + (c + 1);
+			}
+		}
+		ranking = new int[numCandidates];
+	}
+
+	/**
+	 * @param model Preference model voters' rankings are drawn from
+	 * @param dispersion How far rankings stray from their reference ranking (MALLOWS and BLOCS only)
+	 * @param numBlocs How many blocs there are (BLOCS only)
+	 */
+	public void setModel(Model model, double dispersion, int numBlocs) {
+		if (dispersion < 0 || dispersion > 1) throw new IllegalArgumentException("Dispersion must be from 0 to 1.");
+		if (numBlocs < 1) throw new IllegalArgumentException("There must be at least one bloc.");
+		this.model = model;
+		this.dispersion = dispersion;
+		this.numBlocs = numBlocs;
+	}
+
+	/**
+	 * @param abstainRate Chance that a voter leaves an election entirely blank
+	 * @param truncateRate Chance that a voter stops ranking before the last candidate
+	 * @param blankRate Chance that any one of a voter's ranking cells is left blank
+	 */
+	public void setPartialBallots(double abstainRate, double truncateRate, double blankRate) {
+		this.abstainRate = abstainRate;
+		this.truncateRate = truncateRate;
+		this.blankRate = blankRate;
+	}
+
+	/**
+	 * @param ballotStartColumn Where vote data begins in the .tsv (1-indexed); earlier columns are filler
+	 */
+	public void setBallotStartColumn(int ballotStartColumn) {
+		if (ballotStartColumn < 1) throw new IllegalArgumentException("Columns start at 1.");
+		this.ballotStartColumn = ballotStartColumn;
+	}
+
+	/**
+	 * Writes the header row and the given number of ballots
+	 * @param out Where the .tsv is written (should be buffered)
+	 * @param numBallots How many ballot rows to write
+	 */
+	public void write(Writer out, long numBallots) throws IOException {
+		setUpRankings();
+		for (int col = 1; col < ballotStartColumn; col++) {
+			out.write(col == 1 ? "Timestamp" : "Info " + col);
+			out.write('\t');
+		}
+		for (int e = 0; e < numElections; e++) {
+			for (int c = 0; c < numCandidates; c++) {
+				if (e > 0 || c > 0) out.write('\t');
+				out.write("Election " + (e + 1) + " [Choice " + (c + 1) + "]");
+			}
+		}
+		out.write('\n');
+		for (long b = 0; b < numBallots; b++) {
+			for (int col = 1; col < ballotStartColumn; col++) {
+				out.write(col == 1 ? Long.toString(b) : "x");
+				out.write('\t');
+			}
+			for (int e = 0; e < numElections; e++) {
+				int numRanked = drawRanking(e);
+				for (int c = 0; c < numCandidates; c++) {
+					if (e > 0 || c > 0) out.write('\t');
+					if (c < numRanked && (blankRate == 0 || random.nextDouble() >= blankRate)) {
+						out.write(candidateNames[e][ranking[c]]);
+					}
+				}
+			}
+			out.write('\n');
+		}
+	}
+
+	/**
+	 * Writes the header row and the given number of ballots to a UTF-8 file
+	 */
+	public void write(File tsv, long numBallots) throws IOException {
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tsv), StandardCharsets.UTF_8),
+											 1 << 16)) {
+			write(out, numBallots);
+		}
+	}
+
+	/**
+	 * Draws each election's reference rankings (one for MALLOWS, one per bloc for BLOCS) and the blocs' sizes
+	 */
+	private void setUpRankings() {
+		int numReferences = model == Model.BLOCS ? numBlocs : 1;
+		blocRankings = new int[numElections][numReferences][];
+		for (int e = 0; e < numElections; e++) {
+			for (int r = 0; r < numReferences; r++) {
+				drawUniform();
+				blocRankings[e][r] = ranking.clone();
+			}
+		}
+		blocWeights = new double[numReferences];
+		double total = 0;
+		for (int r = 0; r < numReferences; r++) {
+			blocWeights[r] = 0.5 + random.nextDouble(); // Blocs of uneven (but comparable) size
+			total += blocWeights[r];
+		}
+		for (int r = 0; r < numReferences; r++) blocWeights[r] /= total;
+		insertionWeights = new double[numCandidates];
+	}
+
+	/**
+	 * Fills ranking with a voter's ordering of the candidates in an election
+	 * @return How many of the candidates the voter ranks (0 if they abstain)
+	 */
+	private int drawRanking(int electionNum) {
+		if (abstainRate > 0 && random.nextDouble() < abstainRate) return 0;
+		if (model == Model.UNIFORM) drawUniform();
+		else {
+			int bloc = 0;
+			if (model == Model.BLOCS) {
+				double pick = random.nextDouble();
+				while (bloc < blocWeights.length - 1 && pick >= blocWeights[bloc]) pick -= blocWeights[bloc++];
+			}
+			drawMallows(blocRankings[electionNum][bloc]);
+		}
+		if (truncateRate > 0 && numCandidates > 1 && random.nextDouble() < truncateRate) {
+			return 1 + random.nextInt(numCandidates - 1);
+		}
+		return numCandidates;
+	}
+
+	/**
+	 * Fills ranking with a uniformly random ordering (Fisher-Yates shuffle)
+	 */
+	private void drawUniform() {
+		for (int c = 0; c < numCandidates; c++) ranking[c] = c;
+		for (int c = numCandidates - 1; c > 0; c--) {
+			int swap = random.nextInt(c + 1);
+			int held = ranking[c];
+			ranking[c] = ranking[swap];
+			ranking[swap] = held;
+		}
+	}
+
+	/**
+	 * Fills ranking with a Mallows-distributed ordering around the reference, by the repeated insertion model:
+	 *  the i-th reference candidate is inserted at position j (of i + 1) with weight dispersion^(i - j)
+	 */
+	private void drawMallows(int[] reference) {
+		for (int i = 0; i < numCandidates; i++) {
+			double total = 0, weight = 1;
+			for (int j = i; j >= 0; j--) {
+				insertionWeights[j] = weight;
+				total += weight;
+				weight *= dispersion;
+			}
+			double pick = random.nextDouble() * total;
+			int position = i;
+			while (position > 0 && pick >= insertionWeights[position]) pick -= insertionWeights[position--];
+			System.arraycopy(ranking, position, ranking, position + 1, i - position);
+			ranking[position] = reference[i];
+		}
+	}
+
+	/**
+	 * Command-line entry point; see usage() for the arguments
+	 */
+	public static void main(String[] args) throws IOException {
+		int numElections = 4, numCandidates = 10, startColumn = 6, numBlocs = 3;
+		long numBallots = 1000, seed = 1;
+		double dispersion = 0.7, abstain = 0, truncate = 0, blank = 0;
+		Model model = Model.MALLOWS;
+		File output = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String arg = args[i];
+				if (arg.equals("-n")) numBallots = Long.parseLong(args[++i]);
+				else if (arg.equals("-e")) numElections = Integer.parseInt(args[++i]);
+				else if (arg.equals("-c")) numCandidates = Integer.parseInt(args[++i]);
+				else if (arg.equals("--column")) startColumn = Integer.parseInt(args[++i]);
+				else if (arg.equals("--model")) model = Model.valueOf(args[++i].toUpperCase());
+				else if (arg.equals("--dispersion")) dispersion = Double.parseDouble(args[++i]);
+				else if (arg.equals("--blocs")) numBlocs = Integer.parseInt(args[++i]);
+				else if (arg.equals("--abstain")) abstain = Double.parseDouble(args[++i]);
+				else if (arg.equals("--truncate")) truncate = Double.parseDouble(args[++i]);
+				else if (arg.equals("--blank")) blank = Double.parseDouble(args[++i]);
+				else if (arg.equals("--seed")) seed = Long.parseLong(args[++i]);
+				else if (output == null && !arg.startsWith("-")) output = new File(arg);
+				else throw new IllegalArgumentException("Unexpected argument \"" + arg + "\".");
+			}
+			if (output == null) throw new IllegalArgumentException("No output file given.");
+			YAV_TSV_Generator generator = new YAV_TSV_Generator(numElections, numCandidates, seed);
+			generator.setModel(model, dispersion, numBlocs);
+			generator.setPartialBallots(abstain, truncate, blank);
+			generator.setBallotStartColumn(startColumn);
+			generator.write(output, numBallots);
+		}
+		catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			System.err.println("Error: " + e.getMessage());
+			usage();
+			System.exit(1);
+		}
+	}
+
+	private static void usage() {
+		System.err.println("Usage: java YAV_Election_Analyzer.YAV_TSV_Generator [options] <output.tsv>");
+		System.err.println("  -n <ballots>            Number of ballot rows (default 1000)");
+		System.err.println("  -e <elections>          Number of elections (default 4)");
+		System.err.println("  -c <candidates>         Candidates per election (default 10)");
+		System.err.println("  --column <col>          1-indexed column where votes begin (default 6)");
+		System.err.println("  --model <model>         uniform, mallows, or blocs (default mallows)");
+		System.err.println("  --dispersion <0-1>      Mallows dispersion, 0 = no variation, 1 = uniform (default 0.7)");
+		System.err.println("  --blocs <blocs>         Number of voting blocs for the blocs model (default 3)");
+		System.err.println("  --abstain <rate>        Chance a voter skips an election (default 0)");
+		System.err.println("  --truncate <rate>       Chance a voter stops ranking early (default 0)");
+		System.err.println("  --blank <rate>          Chance a ranking cell is left blank (default 0)");
+		System.err.println("  --seed <seed>           Random seed (default 1)");
+	}
+}
@@ -5,15 +5,23 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
 
 /**
  * Provides static methods for importing votes from a .tsv into a YAV_Ballot_Box object
+ * load() reads the .tsv once; scan() followed by read() does the same in two passes, for a premade YAV_Config
  * 
  * @author Grant Barker, for use with Louisiana Youth & Government conference elections
  */
 
 public class YAV_TSV_Reader {
+	private static final int PROGRESS_ROWS = 1 << 12; // How often a load reports its progress
+	/**
+	 * Returned by append() when the .tsv's last row was read before it was finished (see continuesRow())
+	 */
+	public static final int UNFINISHED_ROW = -2;
+
 	/**
 	 * Scans the .tsv to fill the YAV_Config object with relevant data
 	 * @param tsv Tab-Separated Value file to be read from
@@ -22,6 +30,17 @@ public class YAV_TSV_Reader {
 	 * @return True if the .tsv was parsed correctly, false if the .tsv was misaligned or produced errors
 	 */
 	public static boolean scan(File tsv, YAV_Config config, int ballotStartColumn) {
+		YAV_Events.Parse event = new YAV_Events.Parse();
+		event.begin();
+		boolean scanned = scanCandidates(tsv, config, ballotStartColumn);
+		event.record("scan", tsv, config.numOfElections, candidatesIn(config), 0, scanned ? tsv.length() : 0);
+		return scanned;
+	}
+
+	/**
+	 * Does the work of scan(), which records it as a YAV_Events.Parse event
+	 */
+	private static boolean scanCandidates(File tsv, YAV_Config config, int ballotStartColumn) {
 		try(BufferedReader br = new BufferedReader(new FileReader(tsv.getAbsolutePath()))) {
 			int lineCount = 0; // Row counter for debugging
 			config.clearAll();
@@ -31,41 +50,7 @@ public class YAV_TSV_Reader {
 				lineCount++;
 				String[] lineSplit = line.split("\t");
 				if (!scannedFirstRow) {
-					String currElection = "";
-					String pastElection = "";
-					int numCandidates = 0;
-					for (int i = ballotStartColumn - 1; i < lineSplit.length; i++) {
-						if (lineSplit[i].contains("[")) {
-							currElection = lineSplit[i].substring(0, lineSplit[i].lastIndexOf("[") - 1);
-						}
-						else {
-							currElection = lineSplit[i];
-						}
-						if (currElection.toLowerCase().equals(pastElection.toLowerCase())) {
-							numCandidates++;
-						}
-						else{
-							/* YAV_Config is set up to have a number of positions available for each election (e.g.
-							 House Speaker has 4 winners), but parsing the .tsv for config information cannot provide
-							 this, so here numOfPositionsAvailable is set to the number of columns corresponding to a
-							 particular election. This should ostensibly be as many columns as there are candidates
-							 for a particular election, so the elections will ultimately report the winning order of
-							 every candidate for every election. This is not this original intent of the program but
-							 a ramification of the switch to scanning the .tsv to simplify the program's usage. */
-							if (!pastElection.equals("")) {
-								config.addElection(pastElection, numCandidates);
-								System.out.print("    " + pastElection + ": " + numCandidates + " Candidate");
-								if (numCandidates != 1) System.out.print("s");
-								System.out.println();
-							}
-							pastElection = currElection;
-							numCandidates = 1;
-						}
-					}
-					config.addElection(currElection, numCandidates); // Add in data from the final column
-					System.out.print("    " + currElection + ": " + numCandidates + " Candidate");
-					if (numCandidates != 1) System.out.print("s");
-					System.out.println();
+					scanHeader(lineSplit, config, ballotStartColumn);
 					scannedFirstRow = true;
 				}
 				else {
@@ -73,9 +58,7 @@ public class YAV_TSV_Reader {
 					try {
 						for (String election : config.elections) {
 							for (int j = 0; j < config.positions.get(election); j++) {
-								if (!lineSplit[i].equals("") && !config.candidates.get(election).contains(lineSplit[i])) {
-									config.candidates.get(election).add(lineSplit[i]);
-								}
+								if (!lineSplit[i].equals("")) config.addCanidate(election, lineSplit[i]);
 								i++;
 							}
 						}
@@ -96,42 +79,328 @@ public class YAV_TSV_Reader {
 	}
 
 	/**
-	 * Searches the .tsv for at least one instance of each candidate's name and verifies the column alignment
-	 * Reads the given .tsv file and adds ballots (from ballotStartColumn to the newline) to ballot box ybb
+	 * Fills the YAV_Config object with the elections found in the .tsv's header row (and prints them)
+	 * Consecutive columns named after the same election (eg. "Governor [1st Choice]", "Governor [2nd Choice]")
+	 *  make up that election's columns
+	 * @param lineSplit Header row of the .tsv, split on tabs
+	 * @param config YAV_Config object to be filled
+	 * @param ballotStartColumn Where vote data begins in the .tsv (usually col. 6 or 'F' (this is 1-indexed))
+	 */
+	private static void scanHeader(String[] lineSplit, YAV_Config config, int ballotStartColumn) {
+		String currElection = "";
+		String pastElection = "";
+		int numCandidates = 0;
+		for (int i = ballotStartColumn - 1; i < lineSplit.length; i++) {
+			if (lineSplit[i].contains("[")) {
+				currElection = lineSplit[i].substring(0, lineSplit[i].lastIndexOf("[") - 1);
+			}
+			else {
+				currElection = lineSplit[i];
+			}
+			if (currElection.toLowerCase().equals(pastElection.toLowerCase())) {
+				numCandidates++;
+			}
+			else{
+				/* YAV_Config is set up to have a number of positions available for each election (e.g.
+				 House Speaker has 4 winners), but parsing the .tsv for config information cannot provide
+				 this, so here numOfPositionsAvailable is set to the number of columns corresponding to a
+				 particular election. This should ostensibly be as many columns as there are candidates
+				 for a particular election, so the elections will ultimately report the winning order of
+				 every candidate for every election. This is not this original intent of the program but
+				 a ramification of the switch to scanning the .tsv to simplify the program's usage. */
+				if (!pastElection.equals("")) {
+					config.addElection(pastElection, numCandidates);
+					System.out.print("    " + pastElection + ": " + numCandidates + " Candidate");
+					if (numCandidates != 1) System.out.print("s");
+					System.out.println();
+				}
+				pastElection = currElection;
+				numCandidates = 1;
+			}
+		}
+		config.addElection(currElection, numCandidates); // Add in data from the final column
+		System.out.print("    " + currElection + ": " + numCandidates + " Candidate");
+		if (numCandidates != 1) System.out.print("s");
+		System.out.println();
+	}
+
+	/**
+	 * Reads the .tsv in a single pass, doing the work of scan() and read() together: finds the elections in the header
+	 *  row, then grows each election's candidate dictionary while depositing the encoded ballots in a new ballot box
+	 * Cells are matched against the candidate dictionaries straight from the file's bytes (see YAV_TSV_Tokenizer)
+	 * Verifies the column headers and the bounds of every row (see depositRows()), and that the ballots contain at
+	 *  least one instance of each candidate's name, the same as read() does
+	 * The final row is read whether or not it ends in a newline (see append() for one that was still being written)
 	 * @param tsv Tab-Separated Value file to be read from
-	 * @param ybb YAV_Ballot_Box where the votes will be deposited
-	 * @param nonBallotFirstRow Checks for appropriate column headers if true, starts counting ballots otherwise
+	 * @param config YAV_Config object to be filled from the .tsv
 	 * @param ballotStartColumn Where vote data begins in the .tsv (usually col. 6 or 'F' (this is 1-indexed))
-	 * @return True if the .tsv was parsed correctly, false if the .tsv was misaligned or produced errors
+	 * @param compressed Whether the ballot box collapses identical rankings (see YAV_Ballot_Box)
+	 * @return Filled ballot box, or null if the .tsv was misaligned or produced errors
 	 */
-	public static boolean read(File tsv, YAV_Ballot_Box ybb, boolean nonBallotFirstRow, int ballotStartColumn) {
-		/**
-		 * Checking that the .tsv contains at least one instance of each candidate's name
-		 */
-		ArrayList<String> candidateList = new ArrayList<String>();
-		for (int i = 0; i < ybb.numElections; i++) {
-			for (int j = 0; j < ybb.numCandidates[i]; j++) {
-				candidateList.add(ybb.candidateOrder[i][j]);
+	public static YAV_Ballot_Box load(File tsv, YAV_Config config, int ballotStartColumn, boolean compressed) {
+		return load(tsv, config, ballotStartColumn, compressed, null);
+	}
+
+	/**
+	 * Same as above, but reports how many rows have been read as it goes, and stops if the load is canceled
+	 * @param progress Receives the rows read and is checked for cancellation (or null)
+	 * @return Filled ballot box, or null if the .tsv was misaligned, produced errors, or the load was canceled
+	 */
+	public static YAV_Ballot_Box load(File tsv, YAV_Config config, int ballotStartColumn, boolean compressed,
+									  YAV_Progress progress) {
+		YAV_Events.Parse event = new YAV_Events.Parse();
+		event.begin();
+		YAV_Ballot_Box ybb = loadBallots(tsv, config, ballotStartColumn, compressed, progress);
+		event.record("load", tsv, config.numOfElections, candidatesIn(config), ybb == null ? 0 : ybb.size(),
+					 ybb == null ? 0 : ybb.tsvPosition);
+		return ybb;
+	}
+
+	/**
+	 * Does the work of load(), which records it as a YAV_Events.Parse event
+	 */
+	private static YAV_Ballot_Box loadBallots(File tsv, YAV_Config config, int ballotStartColumn, boolean compressed,
+											  YAV_Progress progress) {
+		YAV_Ballot_Box ybb = null;
+		config.clearAll();
+		if (!tsv.isFile()) {
+			tsvError("The .tsv file could not be found.", config);
+			return null;
+		}
+		try(YAV_TSV_Tokenizer tokenizer = new YAV_TSV_Tokenizer(tsv)) {
+			if (!tokenizer.nextRow()) {
+				tsvError("The .tsv file is empty.", config);
+				return null;
+			}
+			String[] header = tokenizer.getRow(); // Without trailing empty cells, which aren't elections
+			if (header.length < ballotStartColumn) {
+				tsvError("Did not find any election columns at or after Column " + (char) ('A' + ballotStartColumn - 1)
+						 + ".", config);
+				return null;
+			}
+			System.out.println("Elections:");
+			scanHeader(header, config, ballotStartColumn);
+			ybb = new YAV_Ballot_Box(config, compressed);
+			if (!checkHeader(header, ybb, ballotStartColumn)) {
+				config.clearAll();
+				return null;
+			}
+			ybb.tsvPosition = tokenizer.getRowEndPosition();
+			if (depositRows(tsv, tokenizer, ybb, ballotStartColumn, progress, tsv.length()) < 0) {
+				config.clearAll();
+				return null;
 			}
 		}
-		candidateList = candidateSearch(tsv, candidateList, ballotStartColumn); // Helper function
-		if (!candidateList.isEmpty()) {
-			StringBuilder notFound  = new StringBuilder();
-			notFound.append(candidateList.get(0));
-			if (candidateList.size() == 1) {
-				return tsvError("Could not find candidate \"" + notFound.toString() + "\" anywhere in the .tsv.");
+		catch (IOException e) {
+			tsvError("Something went wrong when reading ballots. Is the .tsv file formatted correctly?", config);
+			return null;
+		}
+		if (progress != null && progress.isCanceled()) {
+			config.clearAll();
+			System.out.println("Stopped reading the .tsv after " + ybb.size() + " ballots.");
+			System.out.println();
+			return null;
+		}
+		ybb.refreshCandidates();
+		if (!checkCandidates(ybb)) {
+			config.clearAll();
+			return null;
+		}
+		System.out.println("Counted " + ybb.size() + " cast ballots.");
+		System.out.println();
+		return ybb;
+	}
+
+	/**
+	 * Reads rows that were appended to the .tsv since it was loaded (or last appended from) into the ballot box
+	 * Like load(), the final row is read even without a newline (Google Sheets doesn't end its exports with one), and
+	 *  empty lines are skipped; new candidates are added to the elections' dictionaries as they're found
+	 * If the last row the ballot box read turns out to have been unfinished (more of it has been written since, see
+	 *  continuesRow()), nothing is read, since that row's ballot is already counted: the .tsv has to be loaded again
+	 * A row that's out of bounds is reported and left unread, along with everything after it
+	 * @param tsv Tab-Separated Value file the ballot box was loaded from with load()
+	 * @param ybb Ballot box to deposit the new ballots in
+	 * @param ballotStartColumn Where vote data begins in the .tsv (usually col. 6 or 'F' (this is 1-indexed))
+	 * @return How many ballots were added, UNFINISHED_ROW if the ballot box's last row was unfinished, or -1 if the
+	 *  .tsv couldn't be read or a row was out of bounds
+	 */
+	public static int append(File tsv, YAV_Ballot_Box ybb, int ballotStartColumn) {
+		YAV_Events.Parse event = new YAV_Events.Parse();
+		event.begin();
+		long start = ybb.tsvPosition;
+		int added = 0;
+		try(YAV_TSV_Tokenizer tokenizer = new YAV_TSV_Tokenizer(tsv, ybb.tsvPosition)) {
+			if (continuesRow(tsv, ybb.tsvPosition)) return UNFINISHED_ROW;
+			added = depositRows(tsv, tokenizer, ybb, ballotStartColumn, null, 0);
+		}
+		catch (IOException e) {
+			tsvError("Something went wrong when reading new ballots from the .tsv.");
+			return -1;
+		}
+		ybb.refreshCandidates();
+		event.record("append", tsv, ybb.numElections, candidatesIn(ybb), Math.max(added, 0), ybb.tsvPosition - start);
+		return added;
+	}
+
+	/**
+	 * Checks whether the bytes at a position carry on the row before it instead of starting a new one, ie. whether a
+	 *  final row read up to there without a newline was really still being written
+	 * A row whose newline comes next was finished (unless its last cell took the "\r" of a "\r\n" as it was read)
+	 * @param tsv Tab-Separated Value file
+	 * @param position Byte offset in the .tsv just past a row that was read (eg. YAV_Ballot_Box.tsvPosition)
+	 * @return True if bytes have been written after the position and they don't start a new row
+	 * @throws IOException If the .tsv can't be read
+	 */
+	public static boolean continuesRow(File tsv, long position) throws IOException {
+		if (position <= 0) return false;
+		try (RandomAccessFile in = new RandomAccessFile(tsv, "r")) {
+			if (in.length() <= position) return false;
+			byte[] around = new byte[3]; // The row's last byte, then the next one or two
+			in.seek(position - 1);
+			int read = in.read(around);
+			if (around[0] == '\n') return false;
+			if (around[1] == '\n') return around[0] == '\r';
+			return around[1] != '\r' || read < 3 || around[2] != '\n';
+		}
+	}
+
+	/**
+	 * Encodes each of the tokenizer's remaining rows and deposits it in the ballot box, keeping track of how far into
+	 *  the .tsv the ballot box has read (YAV_Ballot_Box.tsvPosition)
+	 * Empty lines are skipped. Every other row has to have all the cells before the first ballot column, and can't have
+	 *  votes past the header's last election column; a row may leave off its final blank cells, which are no vote
+	 * @param tsv Tab-Separated Value file being read (to find the row number of a row that's out of bounds)
+	 * @param tokenizer Tokenizer positioned at the start of a ballot row
+	 * @param ybb Ballot box to deposit the ballots in
+	 * @param ballotStartColumn Where vote data begins in the .tsv (usually col. 6 or 'F' (this is 1-indexed))
+	 * @param progress Told about every PROGRESS_ROWS rows, and stops the reading once it's canceled (or null)
+	 * @param totalBytes Length of the .tsv, for progress
+	 * @return How many ballots were deposited, or -1 if a row was out of bounds (the rows before it are kept)
+	 */
+	private static int depositRows(File tsv, YAV_TSV_Tokenizer tokenizer, YAV_Ballot_Box ybb, int ballotStartColumn,
+								   YAV_Progress progress, long totalBytes) throws IOException {
+		int[] electionColumns = ybb.numPositions;
+		int lastColumn = ballotStartColumn - 1; // Just past the header's last election column
+		for (int i = 0; i < ybb.numElections; i++) lastColumn += electionColumns[i];
+		// Reused for every row; the ballot box copies a row only if it needs to keep it
+		short[][] rankings = new short[ybb.numElections][];
+		for (int i = 0; i < ybb.numElections; i++) rankings[i] = new short[electionColumns[i]];
+		int deposited = 0, reported = 0; // Rows reported to YAV_Metrics so far
+		long reportedPosition = ybb.tsvPosition, reportedTime = System.nanoTime();
+		boolean outOfBounds = false;
+		byte[] bytes;
+		while (tokenizer.nextRow()) {
+			int numCells = tokenizer.getNumCells();
+			if (numCells == 1 && tokenizer.getCellLength(0) == 0) {
+				ybb.tsvPosition = tokenizer.getRowEndPosition();
+				continue;
 			}
-			else if (candidateList.size() == 2) {
-				notFound.append("\" and \"" + candidateList.get(1));
+			outOfBounds = numCells < ballotStartColumn - 1;
+			for (int col = lastColumn; !outOfBounds && col < numCells; col++) {
+				if (tokenizer.getCellLength(col) > 0) outOfBounds = true;
 			}
-			else {
-				for (int i = 1; i < candidateList.size() - 1; i++) {
-					notFound.append("\", \"" + candidateList.get(i));
+			if (outOfBounds) {
+				tsvError("Did not match the bounds of the .tsv's header row.", rowNumber(tsv, ybb.tsvPosition), ybb);
+				break;
+			}
+			bytes = tokenizer.getBytes();
+			int col = ballotStartColumn - 1;
+			for (int i = 0; i < ybb.numElections; i++) {
+				for (int j = 0; j < electionColumns[i]; j++, col++) {
+					if (col < numCells) {
+						// Only ever returns IDs of up to Short.MAX_VALUE, or NO_VOTE for blank entries
+						rankings[i][j] = (short) ybb.candidateIDs[i].intern(bytes, tokenizer.getCellStart(col),
+																			  tokenizer.getCellLength(col));
+					}
+					else {
+						rankings[i][j] = YAV_Ballot.NO_VOTE;
+					}
+				}
+			}
+			ybb.add(rankings);
+			ybb.tsvPosition = tokenizer.getRowEndPosition();
+			deposited++;
+			if (deposited % PROGRESS_ROWS == 0) {
+				long now = System.nanoTime();
+				YAV_Metrics.rowsRead(deposited - reported, ybb.tsvPosition - reportedPosition, now - reportedTime);
+				reported = deposited;
+				reportedPosition = ybb.tsvPosition;
+				reportedTime = now;
+				if (progress != null) {
+					progress.rowsRead(deposited, tokenizer.getRowEndPosition(), totalBytes);
+					if (progress.isCanceled()) break;
 				}
-				notFound.append("\", and \"" + candidateList.get(candidateList.size() - 1));
 			}
-			return tsvError("Could not find candidates \"" + notFound.toString() + "\" anywhere in the .tsv.");
 		}
+		YAV_Metrics.rowsRead(deposited - reported, ybb.tsvPosition - reportedPosition,
+							 System.nanoTime() - reportedTime);
+		if (outOfBounds) return -1;
+		if (progress != null) progress.rowsRead(deposited, ybb.tsvPosition, totalBytes);
+		return deposited;
+	}
+
+	/**
+	 * Checks the header row for column names that correspond to the elections the ballot box was made with
+	 * @param header Header row of the .tsv, split on tabs
+	 * @param ybb Ballot box for the elections found in the header row
+	 * @param ballotStartColumn Where vote data begins in the .tsv (usually col. 6 or 'F' (this is 1-indexed))
+	 * @return True if every election column is named after its election
+	 */
+	private static boolean checkHeader(String[] header, YAV_Ballot_Box ybb, int ballotStartColumn) {
+		int col = ballotStartColumn - 1;
+		for (int i = 0; i < ybb.numElections; i++) {
+			for (int j = 0; j < ybb.numPositions[i]; j++) {
+				if (col >= header.length) {
+					return tsvError("Did not match the bounds of the .tsv's header row.", 1, ybb);
+				}
+				if (!header[col].toLowerCase().contains(ybb.electionOrder[i].toLowerCase())) {
+					return tsvError("Could not find election \"" + ybb.electionOrder[i] +
+									"\" in Column " + (char) ('A' + col) + " header.");
+				}
+				col++;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Counts the rows before the given byte offset of the .tsv, for reporting which row an error is in
+	 * @return 1-indexed row number of the row starting at the offset, or 0 if the .tsv couldn't be read
+	 */
+	private static int rowNumber(File tsv, long position) {
+		int row = 1;
+		try(YAV_TSV_Tokenizer tokenizer = new YAV_TSV_Tokenizer(tsv)) {
+			while (tokenizer.nextRow() && tokenizer.getRowEndPosition() <= position) row++;
+		}
+		catch (IOException e) {
+			return 0;
+		}
+		return row;
+	}
+
+	/**
+	 * Reads the given .tsv file and adds ballots (from ballotStartColumn to the newline) to ballot box ybb
+	 * Verifies the column alignment, and that the ballots contain at least one instance of each candidate's name
+	 * @param tsv Tab-Separated Value file to be read from
+	 * @param ybb YAV_Ballot_Box where the votes will be deposited
+	 * @param nonBallotFirstRow Checks for appropriate column headers if true, starts counting ballots otherwise
+	 * @param ballotStartColumn Where vote data begins in the .tsv (usually col. 6 or 'F' (this is 1-indexed))
+	 * @return True if the .tsv was parsed correctly, false if the .tsv was misaligned or produced errors
+	 */
+	public static boolean read(File tsv, YAV_Ballot_Box ybb, boolean nonBallotFirstRow, int ballotStartColumn) {
+		YAV_Events.Parse event = new YAV_Events.Parse();
+		event.begin();
+		int before = ybb.size();
+		boolean read = readBallots(tsv, ybb, nonBallotFirstRow, ballotStartColumn);
+		event.record("read", tsv, ybb.numElections, candidatesIn(ybb), ybb.size() - before, read ? tsv.length() : 0);
+		return read;
+	}
+
+	/**
+	 * Does the work of read(), which records it as a YAV_Events.Parse event
+	 */
+	private static boolean readBallots(File tsv, YAV_Ballot_Box ybb, boolean nonBallotFirstRow,
+									   int ballotStartColumn) {
 		try(BufferedReader br = new BufferedReader(new FileReader(tsv.getAbsolutePath()))) {
 			int lineCount = 0; // Row counter for debugging
 			for(String line; (line = br.readLine()) != null; ) {
@@ -182,50 +451,77 @@ public class YAV_TSV_Reader {
 		catch (IOException e) {
 			return tsvError("Something went wrong when reading ballots. Is the .tsv file formatted correctly?");
 		}
-		System.out.println("Counted " + ybb.box.size() + " cast ballots.");
+		if (!checkCandidates(ybb)) return false;
+		System.out.println("Counted " + ybb.size() + " cast ballots.");
 		System.out.println();
 		return true;
 	}
 	
+	/**
+	 * Checks that the .tsv contains at least one instance of each candidate's name (on the deposited ballots)
+	 * @param ybb Ballot box filled from the .tsv
+	 * @return True if every candidate was found on a ballot
+	 */
+	private static boolean checkCandidates(YAV_Ballot_Box ybb) {
+		ArrayList<String> candidateList = new ArrayList<String>();
+		for (int i = 0; i < ybb.numElections; i++) {
+			boolean[] found = new boolean[ybb.numCandidates[i]];
+			for (YAV_Ballot_Group g : ybb.groups.get(i)) {
+				for (short c : g.ranking) {
+					if (c != YAV_Ballot.NO_VOTE) found[c] = true;
+				}
+			}
+			for (int j = 0; j < ybb.numCandidates[i]; j++) {
+				if (!found[j]) candidateList.add(ybb.candidateOrder[i][j]);
+			}
+		}
+		if (candidateList.isEmpty()) return true;
+		StringBuilder notFound  = new StringBuilder();
+		notFound.append(candidateList.get(0));
+		if (candidateList.size() == 1) {
+			return tsvError("Could not find candidate \"" + notFound.toString() + "\" anywhere in the .tsv.");
+		}
+		else if (candidateList.size() == 2) {
+			notFound.append("\" and \"" + candidateList.get(1));
+		}
+		else {
+			for (int i = 1; i < candidateList.size() - 1; i++) {
+				notFound.append("\", \"" + candidateList.get(i));
+			}
+			notFound.append("\", and \"" + candidateList.get(candidateList.size() - 1));
+		}
+		return tsvError("Could not find candidates \"" + notFound.toString() + "\" anywhere in the .tsv.");
+	}
+
+	private static int candidatesIn(YAV_Config config) {
+		int candidates = 0;
+		for (YAV_Candidate_Dictionary d : config.candidates.values()) candidates += d.size();
+		return candidates;
+	}
+
+	private static int candidatesIn(YAV_Ballot_Box ybb) {
+		int candidates = 0;
+		for (int i = 0; i < ybb.numElections; i++) candidates += ybb.candidateIDs[i].size();
+		return candidates;
+	}
+
 	private static boolean tsvError(String error, int lineCount, YAV_Ballot_Box ybb) {
+		YAV_Metrics.validationFailed();
 		System.err.println("Error at row " + lineCount + ": " + error);
-		System.err.println("Counted " + ybb.box.size() + " cast ballots.");
+		System.err.println("Counted " + ybb.size() + " cast ballots.");
 		return false;
 	}
 	
 	private static boolean tsvError(String error) {
+		YAV_Metrics.validationFailed();
 		System.err.println("Error: " + error);
 		return false;
 	}
 
 	private static boolean tsvError(String error, YAV_Config config) {
+		YAV_Metrics.validationFailed();
 		System.err.println("Error: " + error);
 		config.clearAll();
 		return false;
 	}
-
-	/**
-	 * Searches the given .tsv file to check that all candidates are listed at least once in the document
-	 * @param tsv Tab-Separated Value file to be read from
-	 * @param candidates List of candidates to search for in the .tsv
-	 * @return Empty list if all candidates were found, all missing candidates otherwise
-	 */
-	private static ArrayList<String> candidateSearch(File tsv, ArrayList<String> candidates, int ballotStartColumn) {
-		try(BufferedReader br = new BufferedReader(new FileReader(tsv.getAbsolutePath()))) {
-			for(String line; (line = br.readLine()) != null; ) {
-				try {
-					String[] lineSplit = line.split("\t");
-					for (int i = ballotStartColumn - 1; i < lineSplit.length; i++) {
-						if (candidates.contains(lineSplit[i])) {
-							candidates.remove(lineSplit[i]);
-						}
-					}
-				}
-				catch (ArrayIndexOutOfBoundsException e) {}
-			}
-		}
-		catch (FileNotFoundException e) {}
-		catch (IOException e) {}
-		return candidates;
-	}
 }
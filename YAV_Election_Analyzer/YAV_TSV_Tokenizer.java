@@ -0,0 +1,201 @@
+package YAV_Election_Analyzer;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Splits a .tsv into rows and cells straight from the file's bytes, without making a String for every line or cell.
+ * Reads through a FileChannel into one reusable buffer, and only records where each cell starts and ends, so cells
+ *  can be matched against a YAV_Candidate_Dictionary in place. Rows end at "\n" (a "\r" before it is dropped), and
+ *  the final row doesn't need a newline, the same as BufferedReader.readLine().
+ * The .tsv is read as UTF-8, which is what Google Sheets exports.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_TSV_Tokenizer implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private FileChannel channel;
+	private byte[] bytes;
+	private ByteBuffer buffer;
+	private int rowStart, rowEnd, limit, numCells;
+	private int[] cellStarts, cellEnds;
+	private boolean endOfFile, rowTerminated;
+	private long bytesRead;
+
+	/**
+	 * Opens the .tsv for reading from the beginning
+	 * @param tsv Tab-Separated Value file to be read from
+	 * @throws IOException If the file can't be opened
+	 */
+	public YAV_TSV_Tokenizer(File tsv) throws IOException {
+		this(tsv, 0);
+	}
+
+	/**
+	 * Opens the .tsv for reading from the given byte offset (which should be the start of a row)
+	 * @param tsv Tab-Separated Value file to be read from
+	 * @param position Byte offset to start reading from
+	 * @throws IOException If the file can't be opened
+	 */
+	public YAV_TSV_Tokenizer(File tsv, long position) throws IOException {
+		channel = FileChannel.open(tsv.toPath(), StandardOpenOption.READ);
+		channel.position(position);
+		bytes = new byte[BUFFER_SIZE];
+		buffer = ByteBuffer.wrap(bytes);
+		cellStarts = new int[64];
+		cellEnds = new int[64];
+		rowStart = rowEnd = limit = numCells = 0;
+		endOfFile = false;
+		bytesRead = position;
+	}
+
+	/**
+	 * Moves on to the next row, splitting it into cells at each tab
+	 * @return False if there are no rows left
+	 * @throws IOException If the file can't be read
+	 */
+	public boolean nextRow() throws IOException {
+		rowStart = rowEnd;
+		while (true) {
+			numCells = 0;
+			int cellStart = rowStart;
+			for (int i = rowStart; i < limit; i++) {
+				if (bytes[i] == '\t') {
+					addCell(cellStart, i);
+					cellStart = i + 1;
+				}
+				else if (bytes[i] == '\n') {
+					addCell(cellStart, i > cellStart && bytes[i - 1] == '\r' ? i - 1 : i);
+					rowEnd = i + 1;
+					rowTerminated = true;
+					return true;
+				}
+			}
+			if (endOfFile) {
+				if (rowStart == limit) return false;
+				addCell(cellStart, limit); // Final row without a newline
+				rowEnd = limit;
+				rowTerminated = false;
+				return true;
+			}
+			fill();
+		}
+	}
+
+	/**
+	 * Moves the unfinished row to the front of the buffer (growing it if the row fills it) and reads more of the file
+	 */
+	private void fill() throws IOException {
+		if (rowStart == 0 && limit == bytes.length) {
+			byte[] grown = new byte[bytes.length * 2];
+			System.arraycopy(bytes, 0, grown, 0, limit);
+			bytes = grown;
+			buffer = ByteBuffer.wrap(bytes);
+		}
+		else if (rowStart > 0) {
+			System.arraycopy(bytes, rowStart, bytes, 0, limit - rowStart);
+			limit -= rowStart;
+			rowStart = 0;
+		}
+		buffer.limit(bytes.length);
+		buffer.position(limit);
+		int read = channel.read(buffer);
+		if (read < 0) endOfFile = true;
+		else {
+			limit += read;
+			bytesRead += read;
+		}
+	}
+
+	private void addCell(int start, int end) {
+		if (numCells == cellStarts.length) {
+			int[] grownStarts = new int[numCells * 2];
+			int[] grownEnds = new int[numCells * 2];
+			System.arraycopy(cellStarts, 0, grownStarts, 0, numCells);
+			System.arraycopy(cellEnds, 0, grownEnds, 0, numCells);
+			cellStarts = grownStarts;
+			cellEnds = grownEnds;
+		}
+		cellStarts[numCells] = start;
+		cellEnds[numCells] = end;
+		numCells++;
+	}
+
+	/**
+	 * @return How many cells are in the current row (empty cells count, including trailing ones)
+	 */
+	public int getNumCells() {
+		return numCells;
+	}
+
+	/**
+	 * @return The buffer holding the current row (only valid until the next call to nextRow())
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return Offset in getBytes() where the cell starts
+	 */
+	public int getCellStart(int cell) {
+		return cellStarts[cell];
+	}
+
+	/**
+	 * @return Length of the cell in bytes
+	 */
+	public int getCellLength(int cell) {
+		return cellEnds[cell] - cellStarts[cell];
+	}
+
+	/**
+	 * Decodes a cell into a String (for the few cells that need one, like the header row)
+	 */
+	public String getCell(int cell) {
+		return new String(bytes, cellStarts[cell], cellEnds[cell] - cellStarts[cell], StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return The current row's cells as Strings, like String.split("\t") (which leaves off trailing empty cells)
+	 */
+	public String[] getRow() {
+		int length = numCells;
+		while (length > 0 && cellEnds[length - 1] == cellStarts[length - 1]) length--;
+		String[] row = new String[length];
+		for (int i = 0; i < length; i++) row[i] = getCell(i);
+		return row;
+	}
+
+	/**
+	 * @return False if the current row is the end of the file without a newline (eg. if it's still being written)
+	 */
+	public boolean isRowTerminated() {
+		return rowTerminated;
+	}
+
+	/**
+	 * @return Byte offset in the file just past the current row (where the next row starts)
+	 */
+	public long getRowEndPosition() {
+		return bytesRead - (limit - rowEnd);
+	}
+
+	/**
+	 * @return How many bytes of the file have been read into the buffer so far
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -0,0 +1,129 @@
+package YAV_Election_Analyzer;
+
+import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a .tsv that's still collecting responses (eg. during the conference) and keeps the results up to date.
+ * Polls the file's length a few times a second; when rows have been appended, reads only those rows into the
+ *  existing ballot box (see YAV_TSV_Reader.append) and re-runs the analysis on it. The .tsv is never re-read from
+ *  the top, and the ballot box adds the new rows to each election's tree and first pass in place (see
+ *  YAV_Ballot_Box.getFirstPass()), so an update costs as much as the new rows plus the passes after the first.
+ * The .tsv's final row is counted as soon as it's there, newline or not. If it turns out to have still been being
+ *  written (more of the same row is appended, see YAV_TSV_Reader.continuesRow()), its ballot can't be taken back
+ *  out of the ballot box, so the .tsv is read again from the top into a new one instead.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+public class YAV_TSV_Watcher {
+	public static final long POLL_MILLIS = 250;
+
+	private final File tsv;
+	private volatile YAV_Ballot_Box ybb;
+	private final int ballotStartColumn;
+	private ScheduledExecutorService poller;
+	private volatile YAV_Analyzer analyzer;
+
+	/**
+	 * @param tsv Tab-Separated Value file the ballot box was loaded from with YAV_TSV_Reader.load()
+	 * @param ybb Ballot box to add the new ballots to (only the watcher should touch it while it's running)
+	 * @param ballotStartColumn Where vote data begins in the .tsv (usually col. 6 or 'F' (this is 1-indexed))
+	 * @param analyzer Analysis of the ballot box as it was loaded (updates are counted by the same rules and options)
+	 */
+	public YAV_TSV_Watcher(File tsv, YAV_Ballot_Box ybb, int ballotStartColumn, YAV_Analyzer analyzer) {
+		this.tsv = tsv;
+		this.ybb = ybb;
+		this.ballotStartColumn = ballotStartColumn;
+		this.analyzer = analyzer;
+	}
+
+	/**
+	 * Starts polling the .tsv on a background thread
+	 */
+	public synchronized void start() {
+		if (poller != null) return;
+		poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "YAV .tsv watcher");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		poller.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				poll();
+			}
+		}, POLL_MILLIS, POLL_MILLIS, TimeUnit.MILLISECONDS);
+		System.out.println("Watching \"" + tsv.getName() + "\" for new responses...");
+		System.out.println();
+	}
+
+	/**
+	 * Stops polling the .tsv (an update that's already running is allowed to finish)
+	 */
+	public synchronized void stop() {
+		if (poller == null) return;
+		poller.shutdown();
+		poller = null;
+		System.out.println("Stopped watching \"" + tsv.getName() + "\".");
+		System.out.println();
+	}
+
+	/**
+	 * @return The ballot box as of the latest update (a new one if the .tsv had to be read again)
+	 */
+	public YAV_Ballot_Box getBallotBox() {
+		return ybb;
+	}
+
+	/**
+	 * @return The analysis of the ballot box as of the latest update
+	 */
+	public YAV_Analyzer getAnalysis() {
+		return analyzer;
+	}
+
+	/**
+	 * Reads any rows appended since the last poll (or the whole .tsv again, if its last row was unfinished) and, if
+	 *  there were any, updates the results
+	 */
+	private void poll() {
+		long length = tsv.length();
+		if (length < ybb.tsvPosition) {
+			System.err.println("Error: \"" + tsv.getName() + "\" got shorter, so rows weren't just appended to it. " +
+							   "Please reopen the .tsv.");
+			stop();
+			return;
+		}
+		if (length == ybb.tsvPosition) return;
+		int added = YAV_TSV_Reader.append(tsv, ybb, ballotStartColumn);
+		if (added == YAV_TSV_Reader.UNFINISHED_ROW) {
+			System.out.println("The last response was still being written when it was counted, so the .tsv is being " +
+							   "read again.");
+			YAV_Ballot_Box reloaded = YAV_TSV_Reader.load(tsv, new YAV_Config(), ballotStartColumn, ybb.compressed);
+			if (reloaded == null) {
+				stop();
+				return;
+			}
+			ybb = reloaded;
+			System.out.println("Updated results:");
+		}
+		else if (added < 0) {
+			stop();
+			return;
+		}
+		else if (added == 0) return; // Only a newline (or empty lines) has been written since
+		else {
+			System.out.print("Counted " + added + " new ballot");
+			if (added != 1) System.out.print("s");
+			System.out.println(" (" + ybb.size() + " total). Updated results:");
+		}
+		analyzer = analyzer.getKind().analyze(ybb, ForkJoinPool.commonPool(), null, analyzer.isBatchElimination());
+		new IRV_Report(System.out).print(analyzer.getResult());
+	}
+}
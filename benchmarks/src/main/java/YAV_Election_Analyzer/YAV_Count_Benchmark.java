@@ -0,0 +1,119 @@
+package YAV_Election_Analyzer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the hot paths of a count:
+ *    parse     - YAV_TSV_Reader.load() of a whole .tsv
+ *    pass      - counting each election's first pass over its ballot groups
+ *    triePass  - building each election's YAV_Ballot_Trie and counting its first pass over that instead
+ *    analysis  - a full multi-position IRV_Analysis of every election (from the ballot box's kept first passes)
+ *    tiebreak  - IRV_Analysis.breakTie() between the first two candidates of each election
+ * Each runs for every combination of the ballot, candidate, and election counts, on a synthetic .tsv written once per
+ *  trial with a fixed seed. Run with gradle :benchmarks:jmh, which adds JMH's GC profiler (-prof gc), so each result
+ *  comes with the bytes allocated per operation (gc.alloc.rate.norm) from every thread the operation used.
+ *
+ * @author Grant Barker, for use with Louisiana Youth & Government conference elections
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YAV_Count_Benchmark {
+	@Param({"1000", "100000"})
+	public int ballots;
+
+	@Param({"5", "15"})
+	public int candidates;
+
+	@Param({"1", "8"})
+	public int elections;
+
+	private File tsv;
+	private YAV_Ballot_Box ybb;
+	private IRV_Analysis tieBreaker;
+	private PrintStream stdout;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		stdout = System.out;
+		// The reader prints its progress; JMH reports its results over its own connection, not System.out
+		System.setOut(new PrintStream(new OutputStream() {
+			public void write(int b) {}
+			public void write(byte[] b, int off, int len) {}
+		}));
+		tsv = File.createTempFile("yav-jmh", ".tsv");
+		YAV_TSV_Generator generator = new YAV_TSV_Generator(elections, candidates, 42);
+		generator.setModel(YAV_TSV_Generator.Model.BLOCS, 0.7, 3);
+		generator.setPartialBallots(0, 0.5, 0);
+		generator.write(tsv, ballots);
+		ybb = YAV_TSV_Reader.load(tsv, new YAV_Config(), 6, true);
+		tieBreaker = new IRV_Analysis(ybb);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.setOut(stdout);
+		tsv.delete();
+	}
+
+	@Benchmark
+	public YAV_Ballot_Box parse() {
+		return YAV_TSV_Reader.load(tsv, new YAV_Config(), 6, true);
+	}
+
+	@Benchmark
+	public long pass() {
+		long counted = 0;
+		for (int i = 0; i < ybb.numElections; i++) {
+			counted += new IRV_Tally(ybb, i, new boolean[ybb.numCandidates[i]]).getTotalVotes();
+		}
+		return counted;
+	}
+
+	@Benchmark
+	public long triePass() {
+		long counted = 0;
+		for (int i = 0; i < ybb.numElections; i++) {
+			YAV_Ballot_Trie trie = new YAV_Ballot_Trie(ybb.groups.get(i));
+			counted += new IRV_Tally(trie, ybb.numCandidates[i], new boolean[ybb.numCandidates[i]]).getTotalVotes();
+		}
+		return counted;
+	}
+
+	@Benchmark
+	public IRV_Result analysis() {
+		return new IRV_Analysis(ybb).getResult();
+	}
+
+	@Benchmark
+	public int tiebreak() {
+		int delta = 0;
+		for (int i = 0; i < ybb.numElections; i++) {
+			if (ybb.numCandidates[i] < 2) continue;
+			delta += tieBreaker.breakTie(ybb, i, ybb.candidateOrder[i][0], ybb.candidateOrder[i][1]).getDelta();
+		}
+		return delta;
+	}
+}